@@ -0,0 +1,43 @@
+package com.example.designpatterns.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Benchmark Runner
+ *
+ * Runs every JMH benchmark in this package once per configured thread count, with the GC/allocation
+ * profiler attached, and writes one JSON result file per thread count (e.g. target/jmh/jmh-result-t4.json).
+ * The JSON files are stable across releases, so two runs can be diffed to spot regressions.
+ *
+ * System properties (wired from the "benchmark" Maven profile):
+ * - jmh.threads: comma-separated thread counts, default "1,4,16"
+ * - jmh.include: regex of benchmarks to run, default this package
+ * - jmh.results: output directory, default "target/jmh"
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", BenchmarkRunner.class.getPackageName());
+        File resultDir = new File(System.getProperty("jmh.results", "target/jmh"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create result directory: " + resultDir);
+        }
+        for (String threads : System.getProperty("jmh.threads", "1,4,16").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "jmh-result-t" + threadCount + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.CommandExample;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command Benchmark: EditorInvoker type/undo on large documents.
+ * Each operation types and then undoes one command, so the document size stays at the @Param value.
+ * typeUndoWithContent also reads the content back, as the /command/editor endpoints do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int documentSize;
+
+    private CommandExample.EditorInvoker invoker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        invoker = new CommandExample.EditorInvoker();
+        invoker.executeCommand(new CommandExample.TypeCommand(invoker.getEditor(), "x".repeat(documentSize)));
+    }
+
+    @Benchmark
+    public String typeUndo() {
+        invoker.executeCommand(new CommandExample.TypeCommand(invoker.getEditor(), "Hello "));
+        return invoker.undoLast();
+    }
+
+    @Benchmark
+    public String typeUndoWithContent() {
+        invoker.executeCommand(new CommandExample.TypeCommand(invoker.getEditor(), "Hello "));
+        invoker.undoLast();
+        return invoker.getContent();
+    }
+}
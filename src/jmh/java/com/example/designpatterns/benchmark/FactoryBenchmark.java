@@ -0,0 +1,30 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.FactoryExample;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory Benchmark: NotificationFactory.createSender, alone and followed by send().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactoryBenchmark {
+    @Param({"email", "sms", "push"})
+    public String type;
+
+    @Benchmark
+    public FactoryExample.NotificationSender createSender() {
+        return FactoryExample.NotificationFactory.createSender(type);
+    }
+
+    @Benchmark
+    public String createAndSend() {
+        return FactoryExample.NotificationFactory.createSender(type).send("alice@example.com", "Hello Alice");
+    }
+}
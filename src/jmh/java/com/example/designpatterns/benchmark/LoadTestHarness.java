@@ -0,0 +1,176 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.metrics.EndpointMetrics;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load Test Harness: platform-thread vs virtual-thread execution mode.
+ *
+ * For each mode, starts the packaged application as a separate process, holds loadtest.connections
+ * concurrent closed-loop clients against the fan-out endpoints for loadtest.duration seconds, and
+ * reports throughput, client-side latency, errors, and the server's peak RSS and thread count
+ * (read from /proc, so memory figures are Linux only). Results go to target/loadtest/loadtest-result.json.
+ *
+ * The concurrency limiter is switched off by default: with it on, both modes mostly measure how fast
+ * excess requests are shed with 503, not how the execution mode copes with the load. Set
+ * loadtest.limiter=false,true to run each mode with the limiter off and on.
+ *
+ * Run after "mvn package": mvn -P benchmark test-compile exec:exec@loadtest
+ * System properties: loadtest.jar, loadtest.java (must be Java 21+ for virtual mode), loadtest.connections
+ * (default 10000), loadtest.duration (s, default 30), loadtest.latency (simulated downstream ms per subtask,
+ * default 50), loadtest.port (default 18080), loadtest.limiter (false, true or false,true; default false).
+ */
+public class LoadTestHarness {
+    private static final String[] MODES = {"platform", "virtual"};
+
+    public static void main(String[] args) throws Exception {
+        String jar = System.getProperty("loadtest.jar", "target/important-design-pattern-0.0.1-SNAPSHOT.jar");
+        String java = System.getProperty("loadtest.java", "java");
+        int connections = Integer.getInteger("loadtest.connections", 10_000);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        int latencyMillis = Integer.getInteger("loadtest.latency", 50);
+        int port = Integer.getInteger("loadtest.port", 18080);
+        String[] limiterSettings = System.getProperty("loadtest.limiter", "false").split(",");
+
+        List<String> results = new ArrayList<>();
+        for (String mode : MODES) {
+            for (String limiterSetting : limiterSettings) {
+                boolean limiter = Boolean.parseBoolean(limiterSetting.trim());
+                Process server = new ProcessBuilder(java, "-jar", jar,
+                        "--server.port=" + port,
+                        "--server.tomcat.max-connections=" + (connections + 100),
+                        "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                        "--gof.fanout.simulated-latency=" + latencyMillis + "ms",
+                        "--gof.limiter.enabled=" + limiter,
+                        "--logging.file.name=target/loadtest/server-" + mode + (limiter ? "-limiter" : "") + ".log")
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                try {
+                    awaitReady(port, server);
+                    String result = run(mode, limiter, port, server.pid(), connections, durationSeconds);
+                    System.out.println(result);
+                    results.add(result);
+                } finally {
+                    server.destroy();
+                    server.waitFor(30, TimeUnit.SECONDS);
+                }
+            }
+        }
+        Path output = Path.of("target/loadtest/loadtest-result.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, "[\n  " + String.join(",\n  ", results) + "\n]\n");
+        System.out.println("Load test result is saved to " + output.toAbsolutePath());
+    }
+
+    private static void awaitReady(int port, Process server) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/gof/metrics")).build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) throw new IllegalStateException("Server exited with " + server.exitValue());
+            try {
+                if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Server did not start on port " + port);
+    }
+
+    private static String run(String mode, boolean limiter, int port, long pid, int connections, int durationSeconds)
+            throws Exception {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return run(mode, limiter, port, pid, connections, durationSeconds, HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build());
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static String run(String mode, boolean limiter, int port, long pid, int connections, int durationSeconds,
+                              HttpClient client) {
+        URI[] targets = {
+                URI.create("http://localhost:" + port + "/api/gof/observer/stock?stock=ACME&oldPrice=100&newPrice=101"),
+                URI.create("http://localhost:" + port + "/api/gof/factory/broadcast?types=email,sms,push&to=alice&message=hi")
+        };
+        EndpointMetrics latency = new EndpointMetrics(mode, true);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long[] peak = new long[2]; // RSS kB, threads
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> sampleProcess(pid, peak), 0, 500, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<CompletableFuture<Void>> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            clients.add(loop(client, targets[i % targets.length], end, latency, completed, errors));
+        }
+        CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new)).join();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        sampler.shutdownNow();
+
+        EndpointMetrics.Snapshot snapshot = latency.snapshot();
+        return String.format(java.util.Locale.ROOT,
+                "{\"mode\": \"%s\", \"limiter\": %s, \"connections\": %d, \"durationSeconds\": %.1f, \"requests\": %d, \"errors\": %d, "
+                        + "\"throughputPerSecond\": %.1f, \"p50Millis\": %.2f, \"p99Millis\": %.2f, \"p999Millis\": %.2f, "
+                        + "\"peakRssKb\": %d, \"peakThreads\": %d}",
+                mode, limiter, connections, elapsedSeconds, completed.get(), errors.get(), completed.get() / elapsedSeconds,
+                snapshot.valueAtQuantile(0.5) / 1e6, snapshot.valueAtQuantile(0.99) / 1e6,
+                snapshot.valueAtQuantile(0.999) / 1e6, peak[0], peak[1]);
+    }
+
+    // One closed-loop client: sends the next request as soon as the previous one completes
+    private static CompletableFuture<Void> loop(HttpClient client, URI target, long end, EndpointMetrics latency,
+                                                AtomicLong completed, AtomicLong errors) {
+        if (System.nanoTime() >= end) return CompletableFuture.completedFuture(null);
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    boolean error = failure != null || response.statusCode() >= 400;
+                    latency.record(System.nanoTime() - sent, -1, error);
+                    if (error) errors.incrementAndGet(); else completed.incrementAndGet();
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, target, end, latency, completed, errors));
+    }
+
+    private static void sampleProcess(long pid, long[] peak) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    peak[0] = Math.max(peak[0], Long.parseLong(line.replaceAll("\\D", "")));
+                } else if (line.startsWith("Threads:")) {
+                    peak[1] = Math.max(peak[1], Long.parseLong(line.replaceAll("\\D", "")));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // no /proc (not Linux) or the server already exited: keep the peaks seen so far
+        }
+    }
+}
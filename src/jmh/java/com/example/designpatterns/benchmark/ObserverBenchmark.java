@@ -0,0 +1,53 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.ObserverExample;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer Benchmark: Stock.setPrice fan-out at 1, 100 and 10k subscribers.
+ * Subscribers hand each update to a Blackhole instead of keeping a notification list, so the
+ * measurement is the subject's dispatch loop and heap usage stays flat over long runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObserverBenchmark {
+    @Param({"1", "100", "10000"})
+    public int subscribers;
+
+    private ObserverExample.Stock stock;
+    private double price;
+
+    // Observer that sinks updates instead of accumulating them
+    public static class SinkSubscriber implements ObserverExample.Subscriber {
+        private final Blackhole blackhole;
+        public SinkSubscriber(Blackhole blackhole) { this.blackhole = blackhole; }
+        public void update(String stock, double price) {
+            blackhole.consume(stock);
+            blackhole.consume(price);
+        }
+        public String getName() { return "sink"; }
+        public List<String> getNotifications() { return List.of(); }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        stock = new ObserverExample.Stock("ACME", 100.0);
+        for (int i = 0; i < subscribers; i++) {
+            stock.subscribe(new SinkSubscriber(blackhole));
+        }
+    }
+
+    @Benchmark
+    public void setPrice() {
+        price += 0.5;
+        stock.setPrice(price);
+    }
+}
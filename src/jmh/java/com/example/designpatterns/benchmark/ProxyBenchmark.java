@@ -0,0 +1,30 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.ProxyExample;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxy Benchmark: InternetProxy.connectTo for allowed and blocked sites, as USER and ADMIN.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyBenchmark {
+    @Param({"google.com", "facebook.com"})
+    public String site;
+
+    @Param({"USER", "ADMIN"})
+    public String userRole;
+
+    private final ProxyExample.Internet internet = new ProxyExample.InternetProxy();
+
+    @Benchmark
+    public String connectTo() {
+        return internet.connectTo(site, userRole);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.crdt.ReplicatedText;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replicated Text Harness: several in-process ReplicatedText replicas syncing over a loopback transport.
+ *
+ * Deltas and version vectors are JSON encoded and decoded exactly as on the HTTP sync endpoint.
+ * Each round every replica makes random edits (typing and per-user undo) without seeing the others,
+ * then every replica pulls batched deltas from every other one. At the end all replicas must hold the
+ * same text (the harness fails otherwise). Reports merge throughput, bytes on the wire, and retained
+ * heap per document (a fresh replica rebuilt from the full operation log), to target/crdt/crdt-result.json.
+ *
+ * Run: mvn -P benchmark test-compile exec:exec@crdt
+ * System properties: crdt.replicas (default 3), crdt.rounds (200), crdt.edits (20 per replica per round),
+ * crdt.users (5), crdt.batch (500 operations per sync response), crdt.documents (50, for the memory figure).
+ */
+public class ReplicatedTextHarness {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] WORDS = {"pattern ", "singleton ", "observer ", "factory ", "a", "b", "c", "\n"};
+
+    private long mergeNanos;
+    private long mergedOperations;
+    private long bytesOnWire;
+
+    public static void main(String[] args) throws Exception {
+        int replicas = Integer.getInteger("crdt.replicas", 3);
+        int rounds = Integer.getInteger("crdt.rounds", 200);
+        int edits = Integer.getInteger("crdt.edits", 20);
+        int users = Integer.getInteger("crdt.users", 5);
+        int batch = Integer.getInteger("crdt.batch", 500);
+        int documents = Integer.getInteger("crdt.documents", 50);
+
+        checkUndoAcrossReplicas();
+        ReplicatedTextHarness harness = new ReplicatedTextHarness();
+        List<ReplicatedText> cluster = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            cluster.add(new ReplicatedText("replica-" + i));
+        }
+        Random random = new Random(42);
+        for (int round = 0; round < rounds; round++) {
+            for (ReplicatedText replica : cluster) {
+                for (int e = 0; e < edits; e++) {
+                    String user = "user-" + random.nextInt(users);
+                    if (random.nextInt(10) < 7) {
+                        replica.type(user, WORDS[random.nextInt(WORDS.length)]);
+                    } else {
+                        replica.undoLast(user);
+                    }
+                }
+            }
+            harness.syncAll(cluster, batch);
+        }
+        harness.syncAll(cluster, batch);
+
+        String expected = cluster.get(0).getText();
+        for (ReplicatedText replica : cluster) {
+            if (!replica.getText().equals(expected) || replica.getPendingCount() != 0) {
+                throw new IllegalStateException(replica.getReplicaId() + " diverged from " + cluster.get(0).getReplicaId());
+            }
+        }
+
+        ReplicatedText source = cluster.get(0);
+        long bytesPerDocument = measureRetainedBytes(source, documents);
+        String result = String.format(Locale.ROOT,
+                "{\"replicas\": %d, \"rounds\": %d, \"operations\": %d, \"characters\": %d, \"runs\": %d, "
+                        + "\"mergedOperations\": %d, \"mergeOpsPerSecond\": %.0f, \"bytesOnWire\": %d, "
+                        + "\"retainedBytesPerDocument\": %d}",
+                replicas, rounds, source.getOperationCount(), expected.length(), source.getItemCount(),
+                harness.mergedOperations, harness.mergedOperations / (harness.mergeNanos / 1e9), harness.bytesOnWire,
+                bytesPerDocument);
+        System.out.println(result);
+        Path output = Path.of("target/crdt/crdt-result.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, result + "\n");
+        System.out.println("Replicated text result is saved to " + output.toAbsolutePath());
+    }
+
+    // Every replica pulls from every other replica until it has caught up
+    private void syncAll(List<ReplicatedText> cluster, int batch) throws Exception {
+        for (ReplicatedText receiver : cluster) {
+            for (ReplicatedText sender : cluster) {
+                if (sender != receiver) pull(receiver, sender, batch);
+            }
+        }
+    }
+
+    private void pull(ReplicatedText receiver, ReplicatedText sender, int batch) throws Exception {
+        ReplicatedText.Delta delta;
+        do {
+            byte[] request = JSON.writeValueAsBytes(receiver.getVersionVector());
+            Map<String, Long> peerVersion = JSON.readValue(request, new TypeReference<>() {});
+            byte[] response = JSON.writeValueAsBytes(sender.deltaSince(peerVersion, batch));
+            bytesOnWire += request.length + response.length;
+            delta = JSON.readValue(response, ReplicatedText.Delta.class);
+            long start = System.nanoTime();
+            if (delta.snapshot() != null) receiver.mergeSnapshot(delta.snapshot());
+            mergedOperations += receiver.merge(delta.operations());
+            mergeNanos += System.nanoTime() - start;
+        } while (delta.hasMore());
+    }
+
+    // Alice types on one replica, Bob on another; Alice's undo on Bob's replica removes only her text
+    private static void checkUndoAcrossReplicas() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "Hello ");
+        b.type("bob", "World");
+        a.merge(b.deltaSince(a.getVersionVector(), 100).operations());
+        b.merge(a.deltaSince(b.getVersionVector(), 100).operations());
+        if (!a.getText().equals(b.getText())) throw new IllegalStateException("Replicas did not converge");
+        b.undoLast("alice");
+        a.merge(b.deltaSince(a.getVersionVector(), 100).operations());
+        if (!a.getText().equals("World") || !b.getText().equals("World") || a.undoLast("alice") != null) {
+            throw new IllegalStateException("Per-user undo removed the wrong text: '" + a.getText() + "'");
+        }
+    }
+
+    // Retained heap of a replica rebuilt from source's full operation log, averaged over several copies
+    private static long measureRetainedBytes(ReplicatedText source, int documents) throws InterruptedException {
+        ReplicatedText.Delta all = source.deltaSince(Map.of(), Integer.MAX_VALUE);
+        long before = usedHeapAfterGc();
+        List<ReplicatedText> copies = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            ReplicatedText copy = new ReplicatedText("copy-" + i);
+            copy.merge(all.operations());
+            copies.add(copy);
+        }
+        long after = usedHeapAfterGc();
+        if (copies.get(documents - 1).getText().length() != source.getText().length()) {
+            throw new IllegalStateException("Rebuilt document differs from its source");
+        }
+        return (after - before) / documents;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.metrics.RequestMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request Metrics Benchmark: per-request recording cost of the metrics filter.
+ * record() must stay well under 100 ns and allocate nothing (check gc.alloc.rate.norm);
+ * recordWithAllocationSampling adds the sampled allocated-bytes reads the filter performs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestMetricsBenchmark {
+    private static final String METHOD = "POST";
+    private static final String ENDPOINT = "/api/gof/strategy/pay";
+
+    private final RequestMetrics metrics = new RequestMetrics(64);
+    private long latency;
+
+    @Benchmark
+    public void record() {
+        latency = (latency + 7919) & 0xFFFFF;
+        metrics.record(METHOD, ENDPOINT, latency, -1, false);
+    }
+
+    @Benchmark
+    public void recordWithAllocationSampling() {
+        long before = metrics.sampleAllocations() ? metrics.currentThreadAllocatedBytes() : -1;
+        long start = System.nanoTime();
+        long elapsed = System.nanoTime() - start;
+        long allocated = before < 0 ? -1
+                : metrics.estimateAllocatedBytes(metrics.currentThreadAllocatedBytes() - before);
+        metrics.record(METHOD, ENDPOINT, elapsed, allocated, false);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.limiter.RouteLimiter;
+import com.example.designpatterns.limiter.VegasLimit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route Limiter Benchmark: cost of the lock-free admission path.
+ * admitAndRelease runs below the limit (CAS acquire + Vegas update + release); shedAtLimit measures
+ * how cheaply a request is rejected once the route is saturated and queueing is disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteLimiterBenchmark {
+    private final RouteLimiter open = new RouteLimiter(new VegasLimit(1000, 1000, 1000, 1000), 0, 0);
+    private final RouteLimiter saturated = new RouteLimiter(new VegasLimit(1, 1, 1, 1000), 0, 0);
+
+    @Setup(Level.Trial)
+    public void saturate() {
+        saturated.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean admitAndRelease() {
+        boolean admitted = open.acquire(RouteLimiter.Priority.NORMAL);
+        if (admitted) open.release(1_000_000, false);
+        return admitted;
+    }
+
+    @Benchmark
+    public boolean shedAtLimit() {
+        return saturated.acquire(RouteLimiter.Priority.NORMAL);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.SingletonExample;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton Benchmark: SingletonExample.log under contention.
+ * Every benchmark thread appends to the same shared instance; run with -Djmh.threads to vary contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingletonBenchmark {
+    private final SingletonExample logger = SingletonExample.getInstance();
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void silenceStdout() {
+        // log() echoes every entry to System.out; keep console I/O out of the measurement
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearHistory() {
+        logger.clearLogHistory();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreStdout() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void log() {
+        logger.log("benchmark message");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.designpatterns.benchmark;
+
+import com.example.designpatterns.gof.StrategyExample;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Strategy Benchmark: PaymentContext dispatch.
+ * singleStrategy keeps the call site monomorphic for the @Param method; mixedStrategies rotates
+ * through all three strategies so the call site turns megamorphic, as it does under real traffic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+    @Param({"credit", "paypal", "upi"})
+    public String method;
+
+    private StrategyExample.PaymentContext context;
+    private StrategyExample.PaymentContext[] contexts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new StrategyExample.PaymentContext(strategyFor(method));
+        contexts = new StrategyExample.PaymentContext[] {
+                new StrategyExample.PaymentContext(new StrategyExample.CreditCardPayment()),
+                new StrategyExample.PaymentContext(new StrategyExample.PaypalPayment()),
+                new StrategyExample.PaymentContext(new StrategyExample.UpiPayment())
+        };
+    }
+
+    private static StrategyExample.PaymentStrategy strategyFor(String method) {
+        return switch (method) {
+            case "credit" -> new StrategyExample.CreditCardPayment();
+            case "paypal" -> new StrategyExample.PaypalPayment();
+            case "upi" -> new StrategyExample.UpiPayment();
+            default -> throw new IllegalArgumentException("Unknown payment method: " + method);
+        };
+    }
+
+    @Benchmark
+    public String singleStrategy() {
+        return context.executePayment(499);
+    }
+
+    @Benchmark
+    public String mixedStrategies() {
+        next = (next + 1) % contexts.length;
+        return contexts[next].executePayment(499);
+    }
+}
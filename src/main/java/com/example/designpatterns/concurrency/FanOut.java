@@ -0,0 +1,55 @@
+package com.example.designpatterns.concurrency;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Fan-Out
+ *
+ * Runs a group of independent subtasks (one per subscriber, one per notification channel, ...) and
+ * returns their results in task order. A call returns only once every subtask has finished or been
+ * cancelled, so no subtask outlives the request that started it.
+ *
+ * - sequential(): runs the subtasks one after another in the caller's thread (platform-thread mode).
+ * - StructuredFanOut: runs each subtask on its own virtual thread under a shared deadline.
+ */
+public interface FanOut {
+    <T> List<T> invokeAll(List<Callable<T>> tasks);
+
+    static FanOut sequential() {
+        return new FanOut() {
+            public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+                List<T> results = new ArrayList<>(tasks.size());
+                for (Callable<T> task : tasks) {
+                    try {
+                        results.add(task.call());
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new FanOutException("Subtask failed: " + e.getMessage(), e);
+                    }
+                }
+                return results;
+            }
+        };
+    }
+
+    // Delays every subtask by a fixed amount to simulate blocking downstream I/O (load testing only)
+    static FanOut withSimulatedLatency(FanOut delegate, Duration latency) {
+        if (latency.isZero() || latency.isNegative()) return delegate;
+        return new FanOut() {
+            public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+                List<Callable<T>> delayed = new ArrayList<>(tasks.size());
+                for (Callable<T> task : tasks) {
+                    delayed.add(() -> {
+                        Thread.sleep(latency.toMillis());
+                        return task.call();
+                    });
+                }
+                return delegate.invokeAll(delayed);
+            }
+        };
+    }
+}
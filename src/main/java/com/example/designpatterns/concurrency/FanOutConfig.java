@@ -0,0 +1,35 @@
+package com.example.designpatterns.concurrency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Chooses the fan-out used by the pattern endpoints.
+ *
+ * Virtual-thread mode is opt-in: run on Java 21+ with spring.threads.virtual.enabled=true. Spring Boot
+ * then serves requests on virtual threads, and subscriber/channel fan-out runs as structured subtasks
+ * bounded by gof.fanout.deadline. Otherwise subtasks run sequentially in the request thread, as before.
+ */
+@Configuration
+public class FanOutConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public FanOut structuredFanOut(@Value("${gof.fanout.deadline:2s}") Duration deadline,
+                                   @Value("${gof.fanout.simulated-latency:0ms}") Duration simulatedLatency) {
+        FanOut fanOut = new StructuredFanOut(new VirtualThreadTaskExecutor("fanout-"), deadline);
+        return FanOut.withSimulatedLatency(fanOut, simulatedLatency);
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public FanOut sequentialFanOut(@Value("${gof.fanout.simulated-latency:0ms}") Duration simulatedLatency) {
+        return FanOut.withSimulatedLatency(FanOut.sequential(), simulatedLatency);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.designpatterns.concurrency;
+
+/**
+ * Thrown when a fan-out subtask fails or the group misses its deadline.
+ * The remaining subtasks have already been cancelled, and have stopped, when this is thrown.
+ */
+public class FanOutException extends RuntimeException {
+    private final boolean deadlineExceeded;
+
+    public FanOutException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public FanOutException(String message, Throwable cause, boolean deadlineExceeded) {
+        super(message, cause);
+        this.deadlineExceeded = deadlineExceeded;
+    }
+
+    // True if the group ran out of time, false if a subtask failed or the caller was interrupted
+    public boolean isDeadlineExceeded() { return deadlineExceeded; }
+}
@@ -0,0 +1,123 @@
+package com.example.designpatterns.concurrency;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Structured fan-out: every subtask is forked onto the executor (a virtual thread each in
+ * virtual-thread mode) and joined before invokeAll returns. The whole group shares one deadline.
+ *
+ * Subtasks are joined in completion order, so the first failure is seen as soon as it happens. If
+ * a subtask fails, the deadline passes, or the caller is interrupted, every unfinished subtask is
+ * cancelled (interrupted) and invokeAll waits until they have all actually stopped before throwing
+ * a FanOutException. Like StructuredTaskScope.ShutdownOnFailure (still a preview API on Java 21),
+ * no subtask is left running once invokeAll returns or throws.
+ */
+public class StructuredFanOut implements FanOut {
+    private final AsyncTaskExecutor executor;
+    private final Duration deadline;
+
+    public StructuredFanOut(AsyncTaskExecutor executor, Duration deadline) {
+        this.executor = executor;
+        this.deadline = deadline;
+    }
+
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        Scope<T> scope = new Scope<>(tasks.size());
+        CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                scope.futures.add(completion.submit(scope.subtask(i, tasks.get(i))));
+            }
+            for (int joined = 0; joined < tasks.size(); joined++) {
+                Future<Void> done = completion.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new FanOutException("Fan-out missed its deadline of " + deadline.toMillis() + " ms", null, true);
+                }
+                done.get();
+            }
+            return scope.results();
+        } catch (ExecutionException e) {
+            scope.shutdown();
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new FanOutException("Subtask failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            scope.shutdown();
+            Thread.currentThread().interrupt();
+            throw new FanOutException("Interrupted while waiting for subtasks", e);
+        } catch (RuntimeException e) {
+            scope.shutdown();
+            throw e;
+        }
+    }
+
+    // One invokeAll call: its subtasks' results and which of them may still be running
+    private static final class Scope<T> {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        final List<Future<Void>> futures;
+        private final Object[] results;
+        private final AtomicIntegerArray states;
+        private final CountDownLatch finished;
+
+        Scope(int size) {
+            futures = new ArrayList<>(size);
+            results = new Object[size];
+            states = new AtomicIntegerArray(size);
+            finished = new CountDownLatch(size);
+        }
+
+        // A subtask that was cancelled before it started never runs its body
+        Callable<Void> subtask(int index, Callable<T> task) {
+            return () -> {
+                if (!states.compareAndSet(index, PENDING, RUNNING)) return null;
+                try {
+                    results[index] = task.call();
+                    return null;
+                } finally {
+                    finished.countDown();
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> results() {
+            return (List<T>) Arrays.asList(results);
+        }
+
+        // Cancels every unfinished subtask and waits until none of them is running any more
+        void shutdown() {
+            for (int i = 0; i < states.length(); i++) {
+                if (states.compareAndSet(i, PENDING, CANCELLED)) finished.countDown();
+            }
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
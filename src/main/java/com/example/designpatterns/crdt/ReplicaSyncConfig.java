@@ -0,0 +1,37 @@
+package com.example.designpatterns.crdt;
+
+import com.example.designpatterns.gof.CommandExample;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Wires the replicated editor document.
+ *
+ * The replica id is the CRDT's identity, so it must never be reused: a process that restarts starts
+ * again at seq 1 and clock 0, and peers would take its new operations for ones they already have.
+ * Every process start therefore gets a fresh id, gof.crdt.replica-name (default HOSTNAME, the pod
+ * name in Kubernetes) plus a random suffix, and catches up on the document from a peer's snapshot.
+ * The ids of earlier processes leave the version vectors once compaction has dropped their operations.
+ */
+@Configuration
+public class ReplicaSyncConfig {
+
+    @Bean
+    public ReplicatedText replicatedText(@Value("${gof.crdt.replica-name:${HOSTNAME:local}}") String replicaName,
+                                         @Value("${gof.crdt.undo-depth:" + ReplicatedText.DEFAULT_UNDO_DEPTH + "}") int undoDepth) {
+        return new ReplicatedText(newReplicaId(replicaName), undoDepth);
+    }
+
+    @Bean
+    public CommandExample.ReplicatedEditorInvoker replicatedEditorInvoker(ReplicatedText replicatedText) {
+        return new CommandExample.ReplicatedEditorInvoker(replicatedText);
+    }
+
+    // A replica id that no earlier or concurrent process with the same name has used
+    static String newReplicaId(String replicaName) {
+        return replicaName + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+    }
+}
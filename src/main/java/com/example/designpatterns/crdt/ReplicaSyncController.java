@@ -0,0 +1,32 @@
+package com.example.designpatterns.crdt;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class ReplicaSyncController {
+    static final String SYNC_PATH = "/api/gof/command/editor/sync";
+    static final int MAX_BATCH = 5000;
+
+    private final ReplicatedText replicatedText;
+
+    public ReplicaSyncController(ReplicatedText replicatedText) {
+        this.replicatedText = replicatedText;
+    }
+
+    /**
+     * Delta sync for the replicated editor: a peer posts its version vector and gets back the
+     * operations it has not seen yet (at most maxOps; hasMore tells it to ask again), or a snapshot of
+     * the document if it asks for one or is behind what this replica has compacted.
+     */
+    @PostMapping(SYNC_PATH)
+    public ReplicatedText.Delta sync(@RequestBody Map<String, Long> versionVector,
+                                     @RequestParam(defaultValue = "500") int maxOps,
+                                     @RequestParam(defaultValue = "false") boolean snapshot) {
+        return replicatedText.deltaSince(versionVector, Math.max(1, Math.min(maxOps, MAX_BATCH)), snapshot);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.designpatterns.crdt;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls replicated editor operations from the other replicas every gof.crdt.sync-interval.
+ *
+ * Peers come from gof.crdt.peers (base URLs) and/or gof.crdt.peer-dns, a hostname such as a Kubernetes
+ * headless service that resolves to every replica's address (this replica's own address is skipped).
+ * Each pull asks for batches of gof.crdt.batch-size operations until the peer has nothing new; the
+ * first pull of a process asks for a snapshot, since peers may have compacted what it would need.
+ * After a round in which every peer answered, the operations all of them have applied are compacted
+ * away, so every replica must sync with every other one (not just a neighbour) for compaction to be
+ * safe. With no peers configured the editor behaves as a single replica and keeps no log.
+ */
+@Component
+public class ReplicaSyncScheduler {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaSyncScheduler.class);
+    private static final int MAX_BATCHES_PER_PULL = 20;
+
+    private final ReplicatedText replicatedText;
+    private final List<String> peers;
+    private final String peerDns;
+    private final int peerPort;
+    private final Duration interval;
+    private final int batchSize;
+    private final RestClient restClient;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean seeded;
+
+    public ReplicaSyncScheduler(ReplicatedText replicatedText,
+                                @Value("${gof.crdt.peers:}") List<String> peers,
+                                @Value("${gof.crdt.peer-dns:}") String peerDns,
+                                @Value("${gof.crdt.peer-port:8080}") int peerPort,
+                                @Value("${gof.crdt.sync-interval:500ms}") Duration interval,
+                                @Value("${gof.crdt.batch-size:500}") int batchSize) {
+        this.replicatedText = replicatedText;
+        this.peers = peers;
+        this.peerDns = peerDns;
+        this.peerPort = peerPort;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) Duration.ofSeconds(2).toMillis());
+        requestFactory.setReadTimeout((int) Duration.ofSeconds(5).toMillis());
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    void syncAll() {
+        List<String> current = new ArrayList<>(peers);
+        // compaction needs every peer's version vector, so a round with an unknown peer set must not compact
+        boolean everyPeerSynced = addDnsPeers(current);
+        Map<String, Map<String, Long>> peerVersions = new HashMap<>();
+        for (String peer : current) {
+            try {
+                ReplicatedText.Delta last = pull(peer);
+                if (last != null) peerVersions.put(last.replica(), last.versionVector());
+                else everyPeerSynced = false;
+            } catch (RestClientException e) {
+                everyPeerSynced = false;
+                log.debug("Replica sync with {} failed: {}", peer, e.getMessage());
+            } catch (RuntimeException e) {
+                everyPeerSynced = false;
+                log.warn("Replica sync with {} failed", peer, e);
+            }
+        }
+        if (everyPeerSynced) replicatedText.compact(peerVersions);
+    }
+
+    // Returns the peer's last answer, whose replica id and version vector feed compaction
+    private ReplicatedText.Delta pull(String peer) {
+        ReplicatedText.Delta delta = null;
+        for (int batch = 0; batch < MAX_BATCHES_PER_PULL; batch++) {
+            delta = restClient.post()
+                    .uri(peer + ReplicaSyncController.SYNC_PATH + "?maxOps=" + batchSize + (seeded ? "" : "&snapshot=true"))
+                    .body(replicatedText.getVersionVector())
+                    .retrieve()
+                    .body(ReplicatedText.Delta.class);
+            if (delta == null) return null;
+            if (delta.snapshot() != null) {
+                replicatedText.mergeSnapshot(delta.snapshot());
+                seeded = true;
+            }
+            replicatedText.merge(delta.operations());
+            if (!delta.hasMore()) break;
+        }
+        return delta;
+    }
+
+    // Adds the replicas behind gof.crdt.peer-dns; false if the name cannot be resolved
+    private boolean addDnsPeers(List<String> current) {
+        if (peerDns.isBlank()) return true;
+        try {
+            for (InetAddress address : InetAddress.getAllByName(peerDns)) {
+                if (!isLocal(address)) {
+                    current.add("http://" + address.getHostAddress() + ":" + peerPort);
+                }
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            log.debug("Cannot resolve replica peers from {}", peerDns);
+            return false;
+        }
+    }
+
+    private static boolean isLocal(InetAddress address) {
+        try {
+            return address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+}
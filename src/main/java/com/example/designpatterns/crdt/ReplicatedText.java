@@ -0,0 +1,468 @@
+package com.example.designpatterns.crdt;
+
+import com.example.designpatterns.crdt.TextOperation.CharId;
+import com.example.designpatterns.crdt.TextOperation.Delete;
+import com.example.designpatterns.crdt.TextOperation.Insert;
+import com.example.designpatterns.crdt.TextOperation.Span;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replicated Text (sequence CRDT)
+ *
+ * A text document that several replicas edit independently and that converges once every replica
+ * has seen the same operations, in any order. It is an RGA-style list: each character has a unique
+ * id (replica, Lamport clock) and is placed after the character it was typed behind (its origin);
+ * concurrent inserts behind the same origin are ordered by id, newest first. Deleted characters stay
+ * as tombstones so later operations can still refer to them.
+ *
+ * Ids are run-length encoded: one Item holds a whole run of characters typed together (and later
+ * runs typed directly behind it by the same replica), so a run costs one id however long it is.
+ * Items are only split when an edit lands inside them.
+ *
+ * Undo is per user and replicated: the latest undoDepth inserts of each user are tracked in
+ * application order, and undoing deletes exactly the characters of that user's latest insert that
+ * has not been undone yet, wherever they have moved since. Replicas exchange batched deltas: everything a peer's version
+ * vector says it has not seen, in the order this replica applied it (which respects causality).
+ * Operations that arrive before their dependencies are held back until those arrive.
+ *
+ * The operation log only holds what some peer may still need. compact() drops the operations every
+ * peer has applied. A peer that is behind the dropped part (typically a new process, see
+ * ReplicaSyncConfig) gets a snapshot of the document instead: its runs in document order, each with
+ * the character it was typed behind, so merging one is idempotent and order independent like
+ * operations are. Once all operations of a replica that no longer syncs have been dropped, its
+ * version-vector entry is dropped too, so restarts do not grow the vector. If such a replica's
+ * operations arrive again, their inserts are recognised by character id. Inserts received as part of
+ * a snapshot cannot be undone on this replica.
+ */
+public class ReplicatedText {
+    public static final int DEFAULT_UNDO_DEPTH = 100;
+    // Compaction rounds a fully compacted replica must be absent before its version-vector entry is dropped
+    static final int RETIRE_AFTER_ROUNDS = 10;
+
+    // A batch of operations for a peer (or a snapshot, when the peer is behind the compacted log) plus
+    // the sender's id and version vector
+    public record Delta(String replica, List<TextOperation> operations, Map<String, Long> versionVector,
+                        boolean hasMore, Snapshot snapshot) {}
+
+    // The whole document: every run (including deleted ones) in document order, and what it reflects
+    public record Snapshot(List<Run> runs, Map<String, Long> versionVector) {}
+
+    // Characters replica typed with clocks clock, clock + 1, ...; the first one was typed behind origin
+    public record Run(String replica, long clock, CharId origin, String text, boolean deleted) {}
+
+    private enum Outcome { APPLIED, DUPLICATE, NOT_READY }
+
+    // A run of characters with consecutive clocks from one replica
+    private static final class Item {
+        final String replica;
+        final long clock;
+        final CharId origin;
+        final StringBuilder text;
+        boolean deleted;
+        Item prev;
+        Item next;
+
+        Item(String replica, long clock, CharId origin, CharSequence text) {
+            this.replica = replica;
+            this.clock = clock;
+            this.origin = origin;
+            this.text = new StringBuilder(text);
+        }
+
+        int length() { return text.length(); }
+        long end() { return clock + text.length(); }
+    }
+
+    private final String replicaId;
+    private final Item head = new Item("", 0, null, "");
+    private Item tail = head;
+    private long clock;
+    private final Map<String, TreeMap<Long, Item>> index = new HashMap<>();
+    private final Map<String, Long> versionVector = new HashMap<>();
+    private final ArrayList<TextOperation> log = new ArrayList<>();
+    // log positions of each replica's operations after its compacted ones, in seq order
+    private final Map<String, List<Integer>> logPositions = new HashMap<>();
+    // per replica, the highest seq whose operation is no longer in the log
+    private final Map<String, Long> compactedThrough = new HashMap<>();
+    private final Map<String, Integer> retireRounds = new HashMap<>();
+    private final List<TextOperation> pending = new ArrayList<>();
+    private final Map<String, Deque<Insert>> undoable = new HashMap<>();
+    private final int undoDepth;
+    private String cachedText = "";
+
+    public ReplicatedText(String replicaId) {
+        this(replicaId, DEFAULT_UNDO_DEPTH);
+    }
+
+    // undoDepth: how many of each user's most recent inserts can still be undone
+    public ReplicatedText(String replicaId, int undoDepth) {
+        if (undoDepth < 1) throw new IllegalArgumentException("undoDepth must be at least 1");
+        this.replicaId = replicaId;
+        this.undoDepth = undoDepth;
+    }
+
+    public String getReplicaId() { return replicaId; }
+
+    // Local edit: appends text at the end of the document; null (no operation) for empty text
+    public synchronized Insert type(String user, String text) {
+        if (text.isEmpty()) return null;
+        CharId origin = tail == head ? null : new CharId(tail.replica, tail.end() - 1);
+        Insert insert = new Insert(replicaId, nextSeq(), user, clock + 1, origin, text);
+        apply(insert);
+        return insert;
+    }
+
+    // The user's most recent insert that is not undone yet, or null
+    public synchronized Insert lastUndoable(String user) {
+        Deque<Insert> inserts = undoable.get(user);
+        return inserts == null ? null : inserts.peekLast();
+    }
+
+    // Local edit: deletes the characters of insert; false if it was already undone
+    public synchronized boolean undo(Insert insert) {
+        if (!isUndoable(insert.user(), insert.id(), false)) return false;
+        apply(new Delete(replicaId, nextSeq(), insert.user(), List.of(insert.span()), insert.id()));
+        return true;
+    }
+
+    // Local edit: undoes the user's most recent insert; returns it, or null if there is nothing to undo
+    public synchronized Insert undoLast(String user) {
+        Insert last = lastUndoable(user);
+        return last != null && undo(last) ? last : null;
+    }
+
+    private long nextSeq() {
+        return versionVector.getOrDefault(replicaId, 0L) + 1;
+    }
+
+    // Applies remote operations (duplicates are ignored); returns how many were newly applied
+    public synchronized int merge(List<TextOperation> operations) {
+        int applied = 0;
+        for (TextOperation operation : operations) {
+            Outcome outcome = apply(operation);
+            if (outcome == Outcome.APPLIED) applied++;
+            else if (outcome == Outcome.NOT_READY && !pending.contains(operation)) pending.add(operation);
+        }
+        return applied > 0 ? applied + applyPending() : applied;
+    }
+
+    // Retries held-back operations until no more become ready; returns how many were applied
+    private int applyPending() {
+        int applied = 0;
+        boolean progress = true;
+        while (progress && !pending.isEmpty()) {
+            progress = false;
+            for (Iterator<TextOperation> it = pending.iterator(); it.hasNext(); ) {
+                Outcome outcome = apply(it.next());
+                if (outcome != Outcome.NOT_READY) it.remove();
+                if (outcome == Outcome.APPLIED) {
+                    applied++;
+                    progress = true;
+                }
+            }
+        }
+        return applied;
+    }
+
+    // Up to maxOps operations the peer has not seen, oldest first
+    public synchronized Delta deltaSince(Map<String, Long> peerVersion, int maxOps) {
+        return deltaSince(peerVersion, maxOps, false);
+    }
+
+    // As above; a peer that asks for one (e.g. on start) or is behind the compacted log gets a snapshot instead
+    public synchronized Delta deltaSince(Map<String, Long> peerVersion, int maxOps, boolean snapshot) {
+        if (snapshot || isBehindCompaction(peerVersion)) {
+            return new Delta(replicaId, List.of(), new HashMap<>(versionVector), false, snapshot());
+        }
+        int from = log.size();
+        for (Map.Entry<String, List<Integer>> positions : logPositions.entrySet()) {
+            long seen = Math.max(0, peerVersion.getOrDefault(positions.getKey(), 0L))
+                    - compactedThrough.getOrDefault(positions.getKey(), 0L);
+            if (seen < positions.getValue().size()) {
+                from = Math.min(from, positions.getValue().get((int) seen));
+            }
+        }
+        List<TextOperation> operations = new ArrayList<>();
+        int i = from;
+        for (; i < log.size() && operations.size() < maxOps; i++) {
+            TextOperation operation = log.get(i);
+            if (operation.seq() > peerVersion.getOrDefault(operation.replica(), 0L)) {
+                operations.add(operation);
+            }
+        }
+        return new Delta(replicaId, operations, new HashMap<>(versionVector), i < log.size(), null);
+    }
+
+    // A peer without an entry for a replica this one is retiring has retired it already (see compact)
+    private boolean isBehindCompaction(Map<String, Long> peerVersion) {
+        for (Map.Entry<String, Long> compacted : compactedThrough.entrySet()) {
+            String replica = compacted.getKey();
+            boolean retired = !peerVersion.containsKey(replica) && retireRounds.containsKey(replica);
+            if (!retired && peerVersion.getOrDefault(replica, 0L) < compacted.getValue()) return true;
+        }
+        return false;
+    }
+
+    public synchronized Snapshot snapshot() {
+        List<Run> runs = new ArrayList<>();
+        for (Item item = head.next; item != null; item = item.next) {
+            runs.add(new Run(item.replica, item.clock, item.origin, item.text.toString(), item.deleted));
+        }
+        return new Snapshot(runs, new HashMap<>(versionVector));
+    }
+
+    // Merges another replica's snapshot: adds the characters this replica lacks and applies its deletions
+    public synchronized void mergeSnapshot(Snapshot snapshot) {
+        // document order puts every run after its origin, so origins are always present when needed
+        for (Run run : snapshot.runs()) {
+            long end = run.clock() + run.text().length();
+            long position = run.clock();
+            while (position < end) {
+                Item existing = find(new CharId(run.replica(), position));
+                if (existing != null) {
+                    position = Math.min(end, existing.end());
+                    continue;
+                }
+                TreeMap<Long, Item> items = index.get(run.replica());
+                Long next = items == null ? null : items.ceilingKey(position);
+                long missingEnd = next == null ? end : Math.min(end, next);
+                CharId origin = position == run.clock() ? run.origin() : new CharId(run.replica(), position - 1);
+                place(run.replica(), position, origin,
+                        run.text().substring((int) (position - run.clock()), (int) (missingEnd - run.clock())));
+                position = missingEnd;
+            }
+            if (run.deleted()) delete(new Span(run.replica(), run.clock(), run.text().length()));
+        }
+        for (Map.Entry<String, Long> entry : snapshot.versionVector().entrySet()) {
+            if (entry.getValue() > versionVector.getOrDefault(entry.getKey(), 0L)) {
+                versionVector.put(entry.getKey(), entry.getValue());
+                // received as state, so these can no longer be sent to peers as operations
+                compactedThrough.put(entry.getKey(), entry.getValue());
+            }
+        }
+        dropCompactedOperations();
+        cachedText = null;
+        applyPending();
+    }
+
+    /**
+     * Drops the operations that every peer has applied; peerVersions maps each peer's replica id to
+     * its version vector and must cover every peer this replica syncs with (and peers must have
+     * started from a snapshot). A replica that is not among them (nor this one) and whose operations
+     * every peer has applied is being retired: after RETIRE_AFTER_ROUNDS calls its version-vector entry
+     * is dropped, and meanwhile a peer whose vector no longer has it is taken to have dropped it first.
+     * Returns how many operations were dropped.
+     */
+    public synchronized int compact(Map<String, Map<String, Long>> peerVersions) {
+        Map<String, Long> stable = new HashMap<>();
+        for (Map.Entry<String, Long> entry : versionVector.entrySet()) {
+            String replica = entry.getKey();
+            long applied = entry.getValue();
+            for (Map<String, Long> peer : peerVersions.values()) {
+                Long seen = peer.get(replica);
+                applied = Math.min(applied, seen != null ? seen : retireRounds.containsKey(replica) ? applied : 0);
+            }
+            stable.put(replica, applied);
+            if (applied > compactedThrough.getOrDefault(replica, 0L)) compactedThrough.put(replica, applied);
+        }
+        int before = log.size();
+        dropCompactedOperations();
+
+        for (Iterator<Map.Entry<String, Long>> it = versionVector.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            String replica = entry.getKey();
+            boolean gone = !replica.equals(replicaId) && !peerVersions.containsKey(replica)
+                    && entry.getValue().equals(stable.get(replica))
+                    && pending.stream().noneMatch(operation -> operation.replica().equals(replica));
+            if (!gone) {
+                retireRounds.remove(replica);
+            } else if (retireRounds.merge(replica, 1, Integer::sum) >= RETIRE_AFTER_ROUNDS) {
+                it.remove();
+                compactedThrough.remove(replica);
+                logPositions.remove(replica);
+                retireRounds.remove(replica);
+            }
+        }
+        return before - log.size();
+    }
+
+    private void dropCompactedOperations() {
+        int kept = 0;
+        for (TextOperation operation : log) {
+            if (operation.seq() > compactedThrough.getOrDefault(operation.replica(), 0L)) log.set(kept++, operation);
+        }
+        if (kept == log.size()) return;
+        log.subList(kept, log.size()).clear();
+        log.trimToSize();
+        logPositions.clear();
+        for (int i = 0; i < log.size(); i++) {
+            logPositions.computeIfAbsent(log.get(i).replica(), r -> new ArrayList<>()).add(i);
+        }
+    }
+
+    public synchronized String getText() {
+        if (cachedText == null) {
+            StringBuilder text = new StringBuilder();
+            for (Item item = head.next; item != null; item = item.next) {
+                if (!item.deleted) text.append(item.text);
+            }
+            cachedText = text.toString();
+        }
+        return cachedText;
+    }
+
+    public synchronized Map<String, Long> getVersionVector() { return new HashMap<>(versionVector); }
+
+    // Operations received before their dependencies, waiting to be applied
+    public synchronized int getPendingCount() { return pending.size(); }
+
+    // Number of runs in the document (characters share one run until an edit splits it)
+    public synchronized int getItemCount() {
+        int count = 0;
+        for (Item item = head.next; item != null; item = item.next) count++;
+        return count;
+    }
+
+    // Operations still in the log (not yet compacted)
+    public synchronized int getOperationCount() { return log.size(); }
+
+    private Outcome apply(TextOperation operation) {
+        long seen = versionVector.getOrDefault(operation.replica(), 0L);
+        if (operation.seq() <= seen) return Outcome.DUPLICATE;
+        if (operation.seq() != seen + 1 || !dependenciesPresent(operation)) return Outcome.NOT_READY;
+
+        if (operation instanceof Insert insert) {
+            // already present when it is a resend of a retired replica's operation (see compact)
+            if (find(insert.id()) == null) integrate(insert);
+        } else if (operation instanceof Delete delete) {
+            integrate(delete);
+        }
+        versionVector.put(operation.replica(), operation.seq());
+        logPositions.computeIfAbsent(operation.replica(), r -> new ArrayList<>()).add(log.size());
+        log.add(operation);
+        cachedText = null;
+        return Outcome.APPLIED;
+    }
+
+    private boolean dependenciesPresent(TextOperation operation) {
+        if (operation instanceof Insert insert) {
+            return insert.origin() == null || find(insert.origin()) != null;
+        }
+        for (Span span : ((Delete) operation).spans()) {
+            if (find(new CharId(span.replica(), span.clock())) == null
+                    || find(new CharId(span.replica(), span.clock() + span.length() - 1)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void integrate(Insert insert) {
+        place(insert.replica(), insert.clock(), insert.origin(), insert.text());
+        Deque<Insert> inserts = undoable.computeIfAbsent(insert.user(), u -> new ArrayDeque<>());
+        inserts.addLast(insert);
+        if (inserts.size() > undoDepth) inserts.removeFirst();
+    }
+
+    // Puts characters with clocks clock, clock + 1, ... into the document right after origin
+    private void place(String replica, long clock, CharId origin, String text) {
+        Item left = head;
+        if (origin != null) {
+            left = find(origin);
+            long originEnd = origin.clock() + 1;
+            if (originEnd < left.end()) split(left, (int) (originEnd - left.clock));
+        }
+        // Skip concurrent inserts behind the same origin that win the tie (newer id), and their descendants
+        Item right = left.next;
+        while (right != null && compareIds(right.clock, right.replica, clock, replica) > 0) {
+            right = right.next;
+        }
+        Item after = right == null ? tail : right.prev;
+        if (after == left && left != head && !left.deleted
+                && left.replica.equals(replica) && left.end() == clock) {
+            left.text.append(text); // typed right behind its own run: extend it
+        } else {
+            Item item = new Item(replica, clock, origin, text);
+            linkAfter(after, item);
+            index.computeIfAbsent(item.replica, r -> new TreeMap<>()).put(item.clock, item);
+        }
+        this.clock = Math.max(this.clock, clock + text.length() - 1);
+    }
+
+    private void integrate(Delete delete) {
+        for (Span span : delete.spans()) {
+            delete(span);
+        }
+        if (delete.undoOf() != null) {
+            isUndoable(delete.user(), delete.undoOf(), true);
+        }
+    }
+
+    // Whether the user's insert with this id is not undone yet (searching from the newest); optionally forgets it
+    private boolean isUndoable(String user, CharId insertId, boolean remove) {
+        Deque<Insert> inserts = undoable.get(user);
+        if (inserts == null) return false;
+        for (Iterator<Insert> it = inserts.descendingIterator(); it.hasNext(); ) {
+            if (it.next().id().equals(insertId)) {
+                if (remove) {
+                    it.remove();
+                    if (inserts.isEmpty()) undoable.remove(user);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void delete(Span span) {
+        long position = span.clock();
+        long end = span.clock() + span.length();
+        while (position < end) {
+            Item item = find(new CharId(span.replica(), position));
+            if (item.clock < position) item = split(item, (int) (position - item.clock));
+            if (item.end() > end) split(item, (int) (end - item.clock));
+            item.deleted = true;
+            position = item.end();
+        }
+    }
+
+    private Item find(CharId id) {
+        TreeMap<Long, Item> items = index.get(id.replica());
+        if (items == null) return null;
+        Map.Entry<Long, Item> entry = items.floorEntry(id.clock());
+        return entry != null && id.clock() < entry.getValue().end() ? entry.getValue() : null;
+    }
+
+    // Splits item so that its first offset characters stay in it; returns the new right part
+    private Item split(Item item, int offset) {
+        Item right = new Item(item.replica, item.clock + offset, new CharId(item.replica, item.clock + offset - 1),
+                item.text.subSequence(offset, item.length()));
+        right.deleted = item.deleted;
+        item.text.setLength(offset);
+        item.text.trimToSize();
+        linkAfter(item, right);
+        index.get(right.replica).put(right.clock, right);
+        return right;
+    }
+
+    private void linkAfter(Item after, Item item) {
+        item.prev = after;
+        item.next = after.next;
+        if (after.next != null) after.next.prev = item;
+        else tail = item;
+        after.next = item;
+    }
+
+    private static int compareIds(long clockA, String replicaA, long clockB, String replicaB) {
+        int byClock = Long.compare(clockA, clockB);
+        return byClock != 0 ? byClock : replicaA.compareTo(replicaB);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.designpatterns.crdt;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.List;
+
+/**
+ * One replicated edit of a ReplicatedText. Every operation is numbered per origin replica
+ * (replica, seq = 1, 2, 3, ...), which is what version vectors and delta sync count.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = TextOperation.Insert.class, name = "insert"),
+        @JsonSubTypes.Type(value = TextOperation.Delete.class, name = "delete")
+})
+public sealed interface TextOperation {
+    String replica();
+    long seq();
+
+    // Identifies one character: the replica that typed it and its Lamport clock value
+    record CharId(String replica, long clock) {}
+
+    // A run of consecutive characters typed by one replica: clocks clock .. clock + length - 1
+    record Span(String replica, long clock, int length) {}
+
+    /**
+     * Inserts text right after the origin character (null: at the start of the document).
+     * The run's characters get clocks clock, clock + 1, ... so the whole run needs one id.
+     */
+    record Insert(String replica, long seq, String user, long clock, CharId origin, String text)
+            implements TextOperation {
+        public CharId id() { return new CharId(replica, clock); }
+        public Span span() { return new Span(replica, clock, text.length()); }
+    }
+
+    // Marks the characters in spans as deleted; undoOf is set when user undoes that insert
+    record Delete(String replica, long seq, String user, List<Span> spans, CharId undoOf) implements TextOperation {}
+}
@@ -1,5 +1,8 @@
 package com.example.designpatterns.gof;
 
+import com.example.designpatterns.crdt.ReplicatedText;
+import com.example.designpatterns.crdt.TextOperation;
+
 /**
  * Command Pattern Example
  *
@@ -62,4 +65,39 @@ public class CommandExample {
         public String getContent() { return editor.getContent(); }
         public TextEditor getEditor() { return editor; }
     }
+
+    // Concrete command: Type into a replicated (CRDT) document shared by several users and replicas.
+    // Undo removes exactly the characters this command typed, even if others have typed since.
+    public static class ReplicatedTypeCommand implements EditorCommand {
+        private final ReplicatedText document;
+        private final String user;
+        private final String text;
+        private TextOperation.Insert insert;
+        public ReplicatedTypeCommand(ReplicatedText document, String user, String text) {
+            this.document = document;
+            this.user = user;
+            this.text = text;
+        }
+        public String execute() { insert = document.type(user, text); return "Typed: " + text; }
+        public String undo() {
+            if (insert == null || !document.undo(insert)) return "Nothing to undo.";
+            return "Undo type: " + text;
+        }
+    }
+
+    // Command Invoker for the replicated document: the undo history is per user and replicated with
+    // the document, so undoLast works on any replica, including after a failover
+    public static class ReplicatedEditorInvoker {
+        private final ReplicatedText document;
+        public ReplicatedEditorInvoker(ReplicatedText document) { this.document = document; }
+        public String executeCommand(ReplicatedTypeCommand command) { return command.execute(); }
+        // Picks and undoes the insert in one step, so concurrent undos of one user never pick the same insert
+        public String undoLast(String user) {
+            TextOperation.Insert last = document.undoLast(user);
+            if (last == null) return "Nothing to undo.";
+            return "Undo type: " + last.text();
+        }
+        public String getContent() { return document.getText(); }
+        public ReplicatedText getDocument() { return document; }
+    }
 }
@@ -1,16 +1,45 @@
 package com.example.designpatterns.gof;
 
+import com.example.designpatterns.concurrency.FanOut;
+import com.example.designpatterns.concurrency.FanOutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/gof")
 public class GofPatternController {
 
+    private static final int RECENT_LOG_ENTRIES = 10;
+    private static final int MAX_LOG_PAGE_SIZE = 1000;
+
+    // Runs per-subscriber / per-channel work: sequential, or structured virtual-thread subtasks (see FanOutConfig)
+    private final FanOut fanOut;
+    private final SingletonLogBroadcaster logBroadcaster;
+    // Shared editor document, replicated across service replicas (see ReplicaSyncScheduler)
+    private final CommandExample.ReplicatedEditorInvoker commandInvoker;
+
+    public GofPatternController(FanOut fanOut, SingletonLogBroadcaster logBroadcaster,
+                                CommandExample.ReplicatedEditorInvoker commandInvoker) {
+        this.fanOut = fanOut;
+        this.logBroadcaster = logBroadcaster;
+        this.commandInvoker = commandInvoker;
+    }
+
     /**
      * Singleton Pattern Demo (LoggerService)
      *
      * Real-life scenario: Imagine you want a single, centralized logger for your entire application.
-     * This endpoint logs a message and returns the full log history, demonstrating the singleton's global access.
+     * This endpoint logs a message and returns the latest log entries, demonstrating the singleton's global access.
      *
      * How to explain in interview:
      * - "This endpoint simulates a LoggerService singleton. No matter how many times you call it, all logs go to the same instance."
@@ -19,8 +48,50 @@ public class GofPatternController {
     @PostMapping("/singleton/log")
     public String singletonLogDemo(@RequestParam String message) {
         SingletonExample logger = SingletonExample.getInstance();
-        logger.log(message);
-        return "Logged message: '" + message + "'\n\nCurrent Log History:\n" + logger.getLogHistory();
+        long sequence = logger.log(message);
+        StringBuilder result = new StringBuilder()
+                .append("Logged message: '").append(message).append("' (sequence ").append(sequence).append(")\n\n")
+                .append("Latest Log Entries:\n");
+        for (SingletonExample.LogEntry entry : logger.getLatestEntries(RECENT_LOG_ENTRIES)) {
+            result.append(entry.sequence()).append(" [LOG] ").append(entry.message()).append("\n");
+        }
+        return result.toString();
+    }
+
+    // One page of log entries; pass nextCursor as "after" to fetch the following page.
+    // cursorExpired: entries right after the requested cursor were dropped (only the latest ones are
+    // retained); the page then starts at firstSequence, the oldest retained entry.
+    public record LogPage(List<SingletonExample.LogEntry> entries, long nextCursor, boolean hasMore,
+                          boolean cursorExpired, long firstSequence) {}
+
+    /**
+     * Singleton log tail: returns at most limit entries logged after the given cursor (a sequence number),
+     * so clients poll incrementally instead of downloading the whole history.
+     */
+    @GetMapping("/singleton/log")
+    public LogPage singletonLogPage(@RequestParam(defaultValue = "0") long after,
+                                    @RequestParam(defaultValue = "100") int limit) {
+        SingletonExample logger = SingletonExample.getInstance();
+        synchronized (logger) {
+            boolean expired = logger.isExpired(after);
+            long first = logger.getFirstSequence();
+            List<SingletonExample.LogEntry> entries =
+                    logger.getEntriesAfter(after, Math.max(1, Math.min(limit, MAX_LOG_PAGE_SIZE)));
+            long nextCursor = entries.isEmpty()
+                    ? Math.max(Math.max(0, after), first - 1)
+                    : entries.get(entries.size() - 1).sequence();
+            return new LogPage(entries, nextCursor, nextCursor < logger.getLastSequence(), expired, first);
+        }
+    }
+
+    /**
+     * Singleton log stream: Server-Sent Events with every retained entry after the cursor, then each new entry as it is logged.
+     * Reconnecting clients resume from the Last-Event-ID header; a "cursor-expired" event marks a gap.
+     */
+    @GetMapping(value = "/singleton/log/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter singletonLogStream(@RequestParam(defaultValue = "0") long after,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return logBroadcaster.subscribe(lastEventId != null ? lastEventId : after);
     }
 
     /**
@@ -46,6 +117,29 @@ public class GofPatternController {
         }
     }
 
+    /**
+     * Factory Pattern Demo (Multi-channel Broadcast)
+     *
+     * Real-life scenario: Send the same message over several channels at once (e.g. Email and SMS).
+     * The factory creates one sender per channel and each channel is sent as its own fan-out subtask.
+     */
+    @PostMapping("/factory/broadcast")
+    public String factoryBroadcastDemo(@RequestParam List<String> types,
+                                       @RequestParam String to,
+                                       @RequestParam String message) {
+        try {
+            List<Callable<String>> sends = new ArrayList<>(types.size());
+            for (String type : types) {
+                FactoryExample.NotificationSender sender = FactoryExample.NotificationFactory.createSender(type);
+                sends.add(() -> sender.send(to, message));
+            }
+            return "Notification broadcast using " + String.join(", ", types) + ":\n"
+                    + String.join("\n", fanOut.invokeAll(sends));
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
     /**
      * Strategy Pattern Demo (Payment Processing)
      *
@@ -87,7 +181,7 @@ public class GofPatternController {
     public String observerStockDemo(@RequestParam String stock,
                                     @RequestParam double oldPrice,
                                     @RequestParam double newPrice) {
-        ObserverExample.Stock stockObj = new ObserverExample.Stock(stock, oldPrice);
+        ObserverExample.Stock stockObj = new ObserverExample.Stock(stock, oldPrice, fanOut);
         ObserverExample.UserSubscriber user1 = new ObserverExample.UserSubscriber("Alice");
         ObserverExample.UserSubscriber user2 = new ObserverExample.UserSubscriber("Bob");
         stockObj.subscribe(user1);
@@ -170,29 +264,45 @@ public class GofPatternController {
     /**
      * Command Pattern Demo (Text Editor)
      *
-     * Real-life scenario: Typing and undoing text in a simple text editor.
-     * This endpoint demonstrates the Command pattern by letting you type text and undo the last action.
+     * Real-life scenario: Typing and undoing text in a simple text editor shared by several users.
+     * This endpoint demonstrates the Command pattern by letting you type text and undo your own last action.
+     * The document is replicated (CRDT), so every replica of the service serves the same content.
      *
      * How to explain in interview:
      * - "This endpoint lets you type text and undo the last typed string, simulating undo/redo in a text editor using the Command pattern."
      * - "Command is ideal for undo/redo, macro recording, and task scheduling."
      */
     @PostMapping("/command/editor/type")
-    public String commandEditorType(@RequestParam String text) {
-        if (commandInvoker == null) commandInvoker = new CommandExample.EditorInvoker();
-        CommandExample.TypeCommand cmd = new CommandExample.TypeCommand(commandInvoker.getEditor(), text);
+    public String commandEditorType(@RequestParam String text,
+                                    @RequestParam(defaultValue = "anonymous") String user) {
+        CommandExample.ReplicatedTypeCommand cmd =
+                new CommandExample.ReplicatedTypeCommand(commandInvoker.getDocument(), user, text);
         String result = commandInvoker.executeCommand(cmd);
         return result + "\nCurrent content: " + commandInvoker.getContent();
     }
 
     @PostMapping("/command/editor/undo")
-    public String commandEditorUndo() {
-        if (commandInvoker == null) return "Nothing to undo.";
-        String result = commandInvoker.undoLast();
+    public String commandEditorUndo(@RequestParam(defaultValue = "anonymous") String user) {
+        String result = commandInvoker.undoLast(user);
         return result + "\nCurrent content: " + commandInvoker.getContent();
     }
 
-    // Store the invoker as a field for session-like behavior (demo only)
-    private CommandExample.EditorInvoker commandInvoker;
+    /**
+     * A fan-out that missed its deadline (504) or lost a subtask (503) fails the request, so the
+     * concurrency limiter and the error metrics see it as a failed request.
+     */
+    @ExceptionHandler(FanOutException.class)
+    public ResponseEntity<String> fanOutFailed(FanOutException e) {
+        HttpStatus status = e.isDeadlineExceeded() ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body("Error: " + e.getMessage());
+    }
 
+    /**
+     * A log stream client that disconnected comes back here through the container's async error
+     * dispatch. Its stream simply ended and nobody is left to answer, so this is not logged as a failure.
+     */
+    @ExceptionHandler(IOException.class)
+    public void streamClientGone(IOException e) throws IOException {
+        if (!DisconnectedClientHelper.isClientDisconnectedException(e)) throw e;
+    }
 }
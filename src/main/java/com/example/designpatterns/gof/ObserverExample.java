@@ -1,7 +1,10 @@
 package com.example.designpatterns.gof;
 
+import com.example.designpatterns.concurrency.FanOut;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Observer Pattern Example
@@ -47,9 +50,15 @@ public class ObserverExample {
         private final String symbol;
         private double price;
         private final List<Subscriber> subscribers = new ArrayList<>();
+        private final FanOut fanOut; // null: notify in the caller's thread
         public Stock(String symbol, double price) {
+            this(symbol, price, null);
+        }
+        // fanOut decides how subscribers are notified (e.g. one virtual thread per subscriber)
+        public Stock(String symbol, double price, FanOut fanOut) {
             this.symbol = symbol;
             this.price = price;
+            this.fanOut = fanOut;
         }
         public void subscribe(Subscriber subscriber) { subscribers.add(subscriber); }
         public void unsubscribe(Subscriber subscriber) { subscribers.remove(subscriber); }
@@ -58,9 +67,21 @@ public class ObserverExample {
             notifySubscribers();
         }
         private void notifySubscribers() {
+            if (fanOut == null) {
+                for (Subscriber s : subscribers) {
+                    s.update(symbol, price);
+                }
+                return;
+            }
+            double current = price;
+            List<Callable<Void>> updates = new ArrayList<>(subscribers.size());
             for (Subscriber s : subscribers) {
-                s.update(symbol, price);
+                updates.add(() -> {
+                    s.update(symbol, current);
+                    return null;
+                });
             }
+            fanOut.invokeAll(updates);
         }
         public List<Subscriber> getSubscribers() { return subscribers; }
     }
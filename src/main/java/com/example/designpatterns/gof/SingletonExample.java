@@ -1,5 +1,10 @@
 package com.example.designpatterns.gof;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Singleton Pattern Example
  * Ensures only one instance exists and provides global access.
@@ -23,8 +28,19 @@ public class SingletonExample {
     // Eager initialization of the singleton instance
     private static final SingletonExample INSTANCE = new SingletonExample();
 
-    // Example state: log history
-    private final StringBuilder logHistory = new StringBuilder();
+    // One log line with its sequence number (1, 2, 3, ... never reused, even after a clear)
+    public record LogEntry(long sequence, String message) {}
+
+    // Default number of most recent entries kept in memory; older ones are dropped as new ones arrive
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    // Example state: the retained log history as a ring buffer, sequence s lives at ring[s % ring.length]
+    private LogEntry[] ring = new LogEntry[DEFAULT_MAX_ENTRIES];
+    private long firstSequence = 1; // oldest retained entry
+    private long nextSequence = 1;
+
+    // Notified after every new entry (e.g. to push it to streaming clients)
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
 
     // Private constructor prevents instantiation from other classes
     private SingletonExample() {}
@@ -34,16 +50,89 @@ public class SingletonExample {
         return INSTANCE;
     }
 
-    // Real-life method: log a message
-    public void log(String message) {
-        String entry = "[LOG] " + message + "\n";
-        logHistory.append(entry);
-        System.out.println(entry); // Simulate writing to a log file
+    // Real-life method: log a message, returns its sequence number
+    public long log(String message) {
+        long sequence;
+        synchronized (this) {
+            sequence = nextSequence++;
+            ring[slot(sequence)] = new LogEntry(sequence, message);
+            firstSequence = Math.max(firstSequence, nextSequence - ring.length);
+        }
+        System.out.println("[LOG] " + message + "\n"); // Simulate writing to a log file
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return sequence;
     }
 
-    // Get all logs (for demo/testing)
-    public String getLogHistory() {
-        return logHistory.toString();
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // Keeps at most maxEntries of the most recent entries (the newest ones survive a shrink)
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be at least 1");
+        LogEntry[] resized = new LogEntry[maxEntries];
+        long from = Math.max(firstSequence, nextSequence - maxEntries);
+        for (long sequence = from; sequence < nextSequence; sequence++) {
+            resized[(int) (sequence % maxEntries)] = ring[slot(sequence)];
+        }
+        ring = resized;
+        firstSequence = from;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    // Up to limit entries with a sequence number greater than cursor, oldest first.
+    // Entries that are no longer retained are skipped (see isExpired); 0 reads from the oldest retained entry.
+    public synchronized List<LogEntry> getEntriesAfter(long cursor, int limit) {
+        long from = Math.max(firstSequence, cursor + 1);
+        long to = Math.min(nextSequence, from + Math.max(0, limit));
+        List<LogEntry> result = new ArrayList<>((int) Math.max(0, to - from));
+        for (long sequence = from; sequence < to; sequence++) {
+            result.add(ring[slot(sequence)]);
+        }
+        return result;
     }
-}
 
+    // The most recent count entries, oldest first
+    public synchronized List<LogEntry> getLatestEntries(int count) {
+        return getEntriesAfter(Math.max(firstSequence, nextSequence - count) - 1, count);
+    }
+
+    // True if entries right after cursor were already dropped, so a reader resuming there has a gap
+    public synchronized boolean isExpired(long cursor) {
+        return cursor > 0 && cursor < firstSequence - 1;
+    }
+
+    // Sequence number of the oldest retained entry (getLastSequence() + 1 if none is retained)
+    public synchronized long getFirstSequence() {
+        return firstSequence;
+    }
+
+    // Sequence number of the newest entry (0 if nothing was logged yet)
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    // Get all retained logs (for demo/testing, prefer getEntriesAfter)
+    public synchronized String getLogHistory() {
+        StringBuilder history = new StringBuilder();
+        for (LogEntry entry : getEntriesAfter(0, ring.length)) {
+            history.append("[LOG] ").append(entry.message()).append('\n');
+        }
+        return history.toString();
+    }
+
+    // Clear all logs (for benchmarks/testing); sequence numbers keep counting up
+    public synchronized void clearLogHistory() {
+        Arrays.fill(ring, null);
+        firstSequence = nextSequence;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.designpatterns.gof;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes new SingletonExample log entries to Server-Sent Events clients.
+ *
+ * One shared daemon thread decides what every client gets: log() only wakes it up, and the thread
+ * then hands each client the entries after that client's cursor (in pages, so a client that joins
+ * far behind catches up gradually). Clients that lag on the same cursor share one fetched page.
+ * Each event id is the entry's sequence number, so a reconnecting browser resumes via the
+ * Last-Event-ID header. When a client has had nothing for a heartbeat interval it gets a comment
+ * line, which keeps proxies from closing the stream and detects clients that went away.
+ *
+ * The blocking socket writes happen on a fixed pool of gof.singleton.sender-threads, at most one in
+ * flight per client, so a client that stops reading stalls its own stream and one sender, not the
+ * dispatcher. A write still pending after gof.singleton.send-timeout drops that client: it gets nothing
+ * more, and its stream is ended by the stuck sender once the write returns or the container's write
+ * timeout fails it. When every sender is busy and the send queue is full, the client whose write does
+ * not fit is dropped instead of growing the queue. A client that went away (a failed write) is just
+ * removed and its stream ended normally; it is not an error. A client whose cursor is older than the retained log (SingletonExample keeps
+ * gof.singleton.log-retention entries) gets a "cursor-expired" event with the oldest retained sequence
+ * number and then continues from there.
+ */
+@Component
+public class SingletonLogBroadcaster {
+    static final int PAGE_SIZE = 100;
+    static final String CURSOR_EXPIRED_EVENT = "cursor-expired";
+    // Writes waiting for a free sender; each client has at most one, so this caps the clients served at once
+    static final int SEND_QUEUE_CAPACITY = 1024;
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT_EVENT =
+            SseEmitter.event().comment("heartbeat").build();
+
+    // A connected client, the sequence number of the last entry it was sent, and its in-flight write
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long cursor;
+        volatile long sendStartedNanos;
+        volatile long lastSentNanos = System.nanoTime();
+        Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    private final SingletonExample logger = SingletonExample.getInstance();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Duration streamTimeout;
+    private final Duration sendTimeout;
+    private final int retention;
+    private final Thread dispatcher = new Thread(this::dispatchLoop, "singleton-log-broadcaster");
+    private final ThreadPoolExecutor sender;
+    private final Runnable onLog = this::signal;
+    private volatile boolean running = true;
+
+    public SingletonLogBroadcaster(@Value("${gof.singleton.stream-timeout:30m}") Duration streamTimeout,
+                                   @Value("${gof.singleton.send-timeout:5s}") Duration sendTimeout,
+                                   @Value("${gof.singleton.log-retention:" + SingletonExample.DEFAULT_MAX_ENTRIES + "}") int retention,
+                                   @Value("${gof.singleton.sender-threads:4}") int senderThreads) {
+        this.streamTimeout = streamTimeout;
+        this.sendTimeout = sendTimeout;
+        this.retention = retention;
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SEND_QUEUE_CAPACITY), daemonThreads("singleton-log-sender-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PostConstruct
+    void start() {
+        logger.setMaxEntries(retention);
+        logger.addListener(onLog);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        dispatcher.interrupt();
+        logger.removeListener(onLog);
+        for (Subscriber subscriber : subscribers) {
+            // a client with a write in flight is ended by its sender
+            if (subscriber.sending.get()) subscribers.remove(subscriber);
+            else drop(subscriber);
+        }
+        sender.shutdown();
+    }
+
+    // Registers a client that receives every retained entry after cursor, then all new ones
+    public SseEmitter subscribe(long cursor) {
+        return subscribe(new SseEmitter(streamTimeout.toMillis()), cursor);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, long cursor) {
+        Subscriber subscriber = new Subscriber(emitter, Math.max(0, cursor));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            // end the stream normally; the client reconnects with Last-Event-ID
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        signal();
+        return emitter;
+    }
+
+    public int getSubscriberCount() { return subscribers.size(); }
+
+    private void signal() {
+        if (wakeUp.availablePermits() == 0) wakeUp.release();
+    }
+
+    private void dispatchLoop() {
+        long pollMillis = Math.max(1, Math.min(HEARTBEAT.toMillis(), sendTimeout.toMillis()));
+        while (running) {
+            try {
+                wakeUp.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+                dispatch(System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // keep the single dispatcher alive; the failing client is dropped by its send
+            }
+        }
+    }
+
+    // Starts the next write for every client that is not already waiting on one
+    private void dispatch(long now) {
+        long last = logger.getLastSequence();
+        Map<Long, Page> pages = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sending.get()) {
+                if (now - subscriber.sendStartedNanos > sendTimeout.toNanos()) {
+                    // completing would wait for the stuck write; its sender ends the stream when it returns
+                    subscribers.remove(subscriber);
+                }
+                continue;
+            }
+            long cursor = subscriber.cursor;
+            Page page = cursor < last ? pages.computeIfAbsent(cursor, this::fetchPage) : Page.EMPTY;
+            if (page != Page.EMPTY) {
+                send(subscriber, page.events(), page.lastSequence(), now);
+            } else if (now - subscriber.lastSentNanos >= HEARTBEAT.toNanos()) {
+                send(subscriber, HEARTBEAT_EVENT, cursor, now);
+            }
+        }
+    }
+
+    // The next entries after cursor, encoded once as SSE events and written to every client in one flush
+    private record Page(long lastSequence, Set<ResponseBodyEmitter.DataWithMediaType> events) {
+        static final Page EMPTY = new Page(0, Set.of());
+    }
+
+    private Page fetchPage(long cursor) {
+        List<SingletonExample.LogEntry> entries;
+        boolean expired;
+        synchronized (logger) {
+            expired = logger.isExpired(cursor);
+            entries = logger.getEntriesAfter(cursor, PAGE_SIZE);
+        }
+        if (entries.isEmpty()) return Page.EMPTY;
+        Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+        if (expired) {
+            events.addAll(SseEmitter.event()
+                    .name(CURSOR_EXPIRED_EVENT)
+                    .data(Long.toString(entries.get(0).sequence()))
+                    .build());
+        }
+        for (SingletonExample.LogEntry entry : entries) {
+            events.addAll(SseEmitter.event()
+                    .id(Long.toString(entry.sequence()))
+                    .name("log")
+                    .data(entry.message())
+                    .build());
+        }
+        return new Page(entries.get(entries.size() - 1).sequence(), events);
+    }
+
+    // Hands one write to the sender pool; the client's cursor moves only once the write succeeded
+    private void send(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> events, long cursor, long now) {
+        subscriber.sendStartedNanos = now;
+        subscriber.sending.set(true);
+        try {
+            sender.execute(() -> write(subscriber, events, cursor));
+        } catch (RejectedExecutionException e) {
+            // every sender is busy and the queue is full (or shutting down): no write is in flight, so end it here
+            subscriber.sending.set(false);
+            drop(subscriber);
+        }
+    }
+
+    private void write(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> events, long cursor) {
+        boolean open = true;
+        try {
+            subscriber.emitter.send(events);
+            subscriber.cursor = cursor;
+            subscriber.lastSentNanos = System.nanoTime();
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the stream already ended; a normal end of the stream, not an error
+            open = false;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // also ends a stream that was dropped while this write was stuck
+        if (!open || !subscribers.contains(subscriber)) drop(subscriber);
+        signal();
+    }
+
+    // Stops sending to the client and ends its stream; only call when no write of it is in flight, as
+    // SseEmitter completion waits for one
+    private void drop(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.designpatterns.limiter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Admits each request through its route's limiter (one per HTTP method and handler pattern) and sheds
+ * the rest with 503 + Retry-After.
+ * Clients can mark requests with the X-Request-Priority header (high, normal, low; default normal).
+ * The request's latency and outcome (exception or 5xx counts as a drop) train the route's limit.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+    static final String PRIORITY_HEADER = "X-Request-Priority";
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+    private static final String LIMITER_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+
+    private final ConcurrencyLimiters limiters;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimiters limiters) {
+        this.limiters = limiters;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (!(pattern instanceof String route)) return true;
+        RouteLimiter limiter = limiters.forRoute(request.getMethod(), route);
+        if (!limiter.acquire(priority(request.getHeader(PRIORITY_HEADER)))) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            return false;
+        }
+        request.setAttribute(LIMITER_ATTRIBUTE, limiter);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(LIMITER_ATTRIBUTE) instanceof RouteLimiter limiter
+                && request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+            request.removeAttribute(LIMITER_ATTRIBUTE);
+            limiter.release(System.nanoTime() - start, ex != null || response.getStatus() >= 500);
+        }
+    }
+
+    private static RouteLimiter.Priority priority(String header) {
+        if (header == null) return RouteLimiter.Priority.NORMAL;
+        return switch (header.toLowerCase()) {
+            case "high" -> RouteLimiter.Priority.HIGH;
+            case "low" -> RouteLimiter.Priority.LOW;
+            default -> RouteLimiter.Priority.NORMAL;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.designpatterns.limiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One RouteLimiter per HTTP method and endpoint pattern, created on first use, plus their Prometheus
+ * metrics. GET and POST of the same path get separate limits and latency baselines.
+ */
+public class ConcurrencyLimiters {
+    // method -> pattern -> limiter; nested so a lookup needs no composite key
+    private final Map<String, Map<String, RouteLimiter>> routes = new ConcurrentHashMap<>();
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueCapacity;
+    private final long maxQueueWaitNanos;
+
+    public ConcurrencyLimiters(int initialLimit, int minLimit, int maxLimit, int queueCapacity, long maxQueueWaitNanos) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+    }
+
+    public RouteLimiter forRoute(String method, String pattern) {
+        Map<String, RouteLimiter> byPattern = routes.get(method);
+        if (byPattern == null) byPattern = routes.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        RouteLimiter limiter = byPattern.get(pattern);
+        return limiter != null ? limiter : byPattern.computeIfAbsent(pattern, p -> new RouteLimiter(
+                new VegasLimit(initialLimit, minLimit, maxLimit, 1000), queueCapacity, maxQueueWaitNanos));
+    }
+
+    public String scrape() {
+        StringBuilder limit = new StringBuilder()
+                .append("# HELP gof_limiter_limit Adaptive concurrency limit per endpoint.\n")
+                .append("# TYPE gof_limiter_limit gauge\n");
+        StringBuilder inflight = new StringBuilder()
+                .append("# HELP gof_limiter_inflight Requests currently admitted per endpoint.\n")
+                .append("# TYPE gof_limiter_inflight gauge\n");
+        StringBuilder queued = new StringBuilder()
+                .append("# HELP gof_limiter_queued Requests waiting for a permit per endpoint.\n")
+                .append("# TYPE gof_limiter_queued gauge\n");
+        StringBuilder rttNoLoad = new StringBuilder()
+                .append("# HELP gof_limiter_rtt_noload_seconds Lowest recent latency, the limiter's no-load baseline.\n")
+                .append("# TYPE gof_limiter_rtt_noload_seconds gauge\n");
+        StringBuilder rejected = new StringBuilder()
+                .append("# HELP gof_limiter_rejected_total Requests shed with 503 per endpoint.\n")
+                .append("# TYPE gof_limiter_rejected_total counter\n");
+        for (Map.Entry<String, Map<String, RouteLimiter>> method : routes.entrySet()) {
+            for (Map.Entry<String, RouteLimiter> route : method.getValue().entrySet()) {
+                String label = "{method=\"" + escape(method.getKey()) + "\",endpoint=\"" + escape(route.getKey()) + "\"} ";
+                RouteLimiter limiter = route.getValue();
+                limit.append("gof_limiter_limit").append(label).append(limiter.getLimit()).append('\n');
+                inflight.append("gof_limiter_inflight").append(label).append(limiter.getInflight()).append('\n');
+                queued.append("gof_limiter_queued").append(label).append(limiter.getQueued()).append('\n');
+                rttNoLoad.append("gof_limiter_rtt_noload_seconds").append(label)
+                        .append(limiter.getVegasLimit().getRttNoLoadNanos() / 1e9).append('\n');
+                rejected.append("gof_limiter_rejected_total").append(label).append(limiter.getRejected()).append('\n');
+            }
+        }
+        return limit.append(inflight).append(queued).append(rttNoLoad).append(rejected).toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
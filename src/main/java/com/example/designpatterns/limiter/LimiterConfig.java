@@ -0,0 +1,41 @@
+package com.example.designpatterns.limiter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Puts an adaptive concurrency limiter in front of the pattern endpoints (gof.limiter.enabled, on by default).
+ * Metrics, replica sync and the long-lived log stream are left out: they are not request/response work
+ * and would distort the latency the limit learns from.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gof.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class LimiterConfig implements WebMvcConfigurer {
+    private final ConcurrencyLimiters limiters;
+
+    public LimiterConfig(@Value("${gof.limiter.initial-limit:20}") int initialLimit,
+                         @Value("${gof.limiter.min-limit:1}") int minLimit,
+                         @Value("${gof.limiter.max-limit:200}") int maxLimit,
+                         @Value("${gof.limiter.queue-capacity:16}") int queueCapacity,
+                         @Value("${gof.limiter.max-queue-wait:50ms}") Duration maxQueueWait) {
+        this.limiters = new ConcurrencyLimiters(initialLimit, minLimit, maxLimit, queueCapacity, maxQueueWait.toNanos());
+    }
+
+    @Bean
+    public ConcurrencyLimiters concurrencyLimiters() {
+        return limiters;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(limiters))
+                .addPathPatterns("/api/gof/**")
+                .excludePathPatterns("/api/gof/metrics", "/api/gof/singleton/log/stream", "/api/gof/command/editor/sync");
+    }
+}
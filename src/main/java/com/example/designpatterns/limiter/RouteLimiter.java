@@ -0,0 +1,158 @@
+package com.example.designpatterns.limiter;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrency limiter for one route.
+ *
+ * Admission is a CAS on the in-flight counter against the adaptive limit; no lock is taken. When the
+ * route is at its limit a request may wait in a small priority queue for at most maxQueueWait: a
+ * released permit goes straight to the highest-priority waiter, a full queue evicts its lowest-priority
+ * waiter for a higher-priority arrival, and anything that cannot be admitted in time is rejected so the
+ * caller can fail fast (HTTP 503). The queue is a lock-free skip list and waiters hand-off by CAS.
+ */
+public class RouteLimiter {
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int EVICTED = 2;
+    private static final int ABANDONED = 3;
+
+    // A parked request; ordered by priority, then arrival
+    private static final class Waiter implements Comparable<Waiter> {
+        final int priority;
+        final long arrival;
+        final Thread thread = Thread.currentThread();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Waiter(int priority, long arrival) {
+            this.priority = priority;
+            this.arrival = arrival;
+        }
+
+        public int compareTo(Waiter other) {
+            int byPriority = Integer.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(arrival, other.arrival);
+        }
+    }
+
+    private final VegasLimit limit;
+    private final int queueCapacity;
+    private final long maxQueueWaitNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final ConcurrentSkipListSet<Waiter> waiters = new ConcurrentSkipListSet<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public RouteLimiter(VegasLimit limit, int queueCapacity, long maxQueueWaitNanos) {
+        this.limit = limit;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+    }
+
+    public int getLimit() { return limit.getLimit(); }
+    public int getInflight() { return inflight.get(); }
+    public int getQueued() { return queued.get(); }
+    public long getRejected() { return rejected.sum(); }
+    public VegasLimit getVegasLimit() { return limit; }
+
+    // Takes a permit if one is free right now
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit.getLimit()) return false;
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    // Takes a permit, waiting at most maxQueueWait behind higher-priority requests; false means shed the request
+    public boolean acquire(Priority priority) {
+        if (tryAcquire()) return true;
+        if (maxQueueWaitNanos <= 0 || !reserveQueueSlot(priority.ordinal())) {
+            rejected.increment();
+            return false;
+        }
+        Waiter waiter = new Waiter(priority.ordinal(), arrivals.incrementAndGet());
+        waiters.add(waiter);
+        // A permit may have been released before this waiter became visible to release()
+        if (tryAcquire()) {
+            if (waiter.state.compareAndSet(WAITING, ABANDONED)) {
+                dequeue(waiter);
+            } else if (waiter.state.get() == GRANTED) {
+                releasePermit(); // granted concurrently: holding two permits, return one
+            }
+            return true;
+        }
+        long deadline = System.nanoTime() + maxQueueWaitNanos;
+        while (waiter.state.get() == WAITING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            LockSupport.parkNanos(this, remaining);
+        }
+        if (waiter.state.compareAndSet(WAITING, ABANDONED)) {
+            dequeue(waiter);
+            rejected.increment();
+            return false;
+        }
+        if (waiter.state.get() == GRANTED) return true;
+        rejected.increment(); // evicted by a higher-priority request
+        return false;
+    }
+
+    // Returns a permit and feeds the request's outcome to the adaptive limit
+    public void release(long rttNanos, boolean dropped) {
+        limit.onSample(rttNanos, inflight.get(), dropped);
+        releasePermit();
+    }
+
+    private void releasePermit() {
+        inflight.decrementAndGet();
+        while (!waiters.isEmpty() && tryAcquire()) {
+            if (grantNext()) return;
+            inflight.decrementAndGet(); // only abandoned waiters were left
+        }
+    }
+
+    // Hands the caller's permit to the highest-priority live waiter
+    private boolean grantNext() {
+        Waiter next;
+        while ((next = waiters.pollFirst()) != null) {
+            if (next.state.compareAndSet(WAITING, GRANTED)) {
+                queued.decrementAndGet();
+                LockSupport.unpark(next.thread);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean reserveQueueSlot(int priority) {
+        for (;;) {
+            int current = queued.get();
+            if (current < queueCapacity) {
+                if (queued.compareAndSet(current, current + 1)) return true;
+                continue;
+            }
+            Iterator<Waiter> lowestFirst = waiters.descendingIterator();
+            Waiter lowest = lowestFirst.hasNext() ? lowestFirst.next() : null;
+            if (lowest == null || lowest.priority <= priority) return false;
+            if (lowest.state.compareAndSet(WAITING, EVICTED)) {
+                waiters.remove(lowest);
+                LockSupport.unpark(lowest.thread);
+                return true; // the evicted waiter's slot is ours
+            }
+        }
+    }
+
+    private void dequeue(Waiter waiter) {
+        waiters.remove(waiter);
+        queued.decrementAndGet();
+    }
+}
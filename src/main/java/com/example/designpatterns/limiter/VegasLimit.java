@@ -0,0 +1,71 @@
+package com.example.designpatterns.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vegas-style adaptive concurrency limit (as in TCP Vegas and Netflix concurrency-limits).
+ *
+ * The lowest RTT seen approximates the no-load latency. For each completed request the number of
+ * requests queued somewhere downstream is estimated as limit * (1 - rttNoLoad / rtt): if it is small
+ * the limit grows, if it is large the limit shrinks, and a failed request always shrinks it. The
+ * thresholds scale with log10(limit), so small limits move quickly and large ones stay stable.
+ * The no-load RTT is reset every probeInterval samples so a changed baseline is relearned.
+ *
+ * All state is kept in atomics and updated with CAS; reading the limit is a single volatile read.
+ */
+public class VegasLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long probeInterval;
+    private final AtomicInteger limit;
+    private final AtomicLong rttNoLoadNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong samples = new AtomicLong();
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit, long probeInterval) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.probeInterval = probeInterval;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+    }
+
+    public int getLimit() { return limit.get(); }
+
+    public long getRttNoLoadNanos() {
+        long rtt = rttNoLoadNanos.get();
+        return rtt == Long.MAX_VALUE ? 0 : rtt;
+    }
+
+    // Feeds one completed request: its round-trip time, the requests in flight when it ran, and whether it failed
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (rttNanos <= 0) return;
+        if (samples.incrementAndGet() % probeInterval == 0) {
+            rttNoLoadNanos.set(rttNanos);
+        } else {
+            rttNoLoadNanos.accumulateAndGet(rttNanos, Math::min);
+        }
+        long rttNoLoad = rttNoLoadNanos.get();
+        for (;;) {
+            int current = limit.get();
+            int next = nextLimit(current, rttNoLoad, rttNanos, inflight, dropped);
+            if (next == current || limit.compareAndSet(current, next)) return;
+        }
+    }
+
+    private int nextLimit(int current, long rttNoLoad, long rtt, int inflight, boolean dropped) {
+        double log = Math.max(1, Math.log10(current));
+        double next;
+        if (dropped) {
+            next = current - log;
+        } else if (inflight * 2 < current) {
+            return current; // not using half the limit: the sample says nothing about capacity
+        } else {
+            double queue = Math.ceil(current * (1 - (double) rttNoLoad / rtt));
+            if (queue <= log) next = current + 6 * log;
+            else if (queue < 3 * log) next = current + log;
+            else if (queue > 6 * log) next = current - log;
+            else return current;
+        }
+        return (int) Math.max(minLimit, Math.min(maxLimit, Math.round(next)));
+    }
+}
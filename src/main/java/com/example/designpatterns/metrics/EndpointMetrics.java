@@ -0,0 +1,188 @@
+package com.example.designpatterns.metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-endpoint request metrics: a log-linear latency histogram plus error and allocation counters.
+ *
+ * Buckets follow the HdrHistogram layout: values below 64 ns get one bucket each, and every
+ * power-of-two range above that is split into 32 linear sub-buckets, so any recorded value is
+ * reported within ~3% of its true value. Values above ~68 s are clamped into the last bucket.
+ *
+ * Each recording thread owns its own slot array (single writer, plain read + release write), so
+ * record() takes no locks, performs no CAS and allocates nothing after a thread's first request.
+ * snapshot() sums the per-thread arrays; it may miss a recording that is in flight, never corrupts one.
+ * Arrays of threads that have died (e.g. idle pool threads retired by Tomcat) are folded into a shared
+ * retired total and dropped, so memory and snapshot cost follow the live thread count, not uptime.
+ *
+ * Virtual threads are created per request, so a per-thread array would be created (and retained)
+ * for every request. In striped mode a fixed set of arrays is shared, picked by thread id, and
+ * updated with atomic adds instead.
+ */
+public class EndpointMetrics {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int MAX_MAGNITUDE = 36;
+    static final long MAX_TRACKABLE_NANOS = (1L << MAX_MAGNITUDE) - 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_NANOS) + 1;
+
+    // Extra slots after the buckets in each per-thread array
+    private static final int SUM_SLOT = BUCKET_COUNT;
+    private static final int ERRORS_SLOT = BUCKET_COUNT + 1;
+    private static final int ALLOCATED_SLOT = BUCKET_COUNT + 2;
+    private static final int SLOT_COUNT = BUCKET_COUNT + 3;
+
+    private final String endpoint;
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<AtomicLongArray> threadRecorder = ThreadLocal.withInitial(
+            () -> newRecorder(Thread.currentThread()));
+    private final long[] retired = new long[SLOT_COUNT]; // guarded by recorders
+    private final AtomicLongArray[] stripes; // null: one recorder per thread
+
+    public EndpointMetrics(String endpoint) {
+        this(endpoint, false);
+    }
+
+    public EndpointMetrics(String endpoint, boolean striped) {
+        this.endpoint = endpoint;
+        if (striped) {
+            int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+            stripes = new AtomicLongArray[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = newRecorder(null);
+            }
+        } else {
+            stripes = null;
+        }
+    }
+
+    public String getEndpoint() { return endpoint; }
+
+    // owner is null for stripes, which are shared and never retired
+    private AtomicLongArray newRecorder(Thread owner) {
+        Recorder recorder = new Recorder(owner, new AtomicLongArray(SLOT_COUNT));
+        synchronized (recorders) {
+            // Also retire here, so thread churn stays bounded even when nothing scrapes
+            retireDeadRecorders();
+            recorders.add(recorder);
+        }
+        return recorder.slots;
+    }
+
+    private void retireDeadRecorders() {
+        recorders.removeIf(recorder -> {
+            if (!recorder.isDead()) return false;
+            // The owner has terminated, so its slots are final and visible to this thread
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                retired[i] += recorder.slots.getAcquire(i);
+            }
+            return true;
+        });
+    }
+
+    int recorderCount() {
+        return recorders.size();
+    }
+
+    /**
+     * Records one request. allocatedBytes is ignored when negative (allocation tracking unavailable).
+     */
+    public void record(long latencyNanos, long allocatedBytes, boolean error) {
+        AtomicLongArray slots = stripes == null ? threadRecorder.get() : stripes[stripeIndex()];
+        long latency = Math.max(0, latencyNanos);
+        increment(slots, bucketIndex(Math.min(latency, MAX_TRACKABLE_NANOS)), 1);
+        increment(slots, SUM_SLOT, latency);
+        if (error) increment(slots, ERRORS_SLOT, 1);
+        if (allocatedBytes > 0) increment(slots, ALLOCATED_SLOT, allocatedBytes);
+    }
+
+    private void increment(AtomicLongArray slots, int slot, long delta) {
+        if (stripes == null) {
+            // Only the owning thread writes its slots, so a plain read-modify-write is race free
+            slots.setRelease(slot, slots.getPlain(slot) + delta);
+        } else {
+            slots.getAndAdd(slot, delta);
+        }
+    }
+
+    private int stripeIndex() {
+        long mixed = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & (stripes.length - 1);
+    }
+
+    public Snapshot snapshot() {
+        synchronized (recorders) {
+            retireDeadRecorders();
+            long[] totals = retired.clone();
+            for (Recorder recorder : recorders) {
+                for (int i = 0; i < SLOT_COUNT; i++) {
+                    totals[i] += recorder.slots.getAcquire(i);
+                }
+            }
+            return new Snapshot(totals);
+        }
+    }
+
+    static int bucketIndex(long value) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value | 1);
+        int shift = Math.max(0, magnitude - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKET_HALF_COUNT) return index;
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - (long) shift * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // A slot array and the thread that writes it; the weak reference lets a dead thread be collected
+    private static class Recorder {
+        private final WeakReference<Thread> owner;
+        private final AtomicLongArray slots;
+
+        Recorder(Thread owner, AtomicLongArray slots) {
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+            this.slots = slots;
+        }
+
+        boolean isDead() {
+            if (owner == null) return false;
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    // Point-in-time totals across all recording threads
+    public static class Snapshot {
+        private final long[] totals;
+        private final long count;
+
+        private Snapshot(long[] totals) {
+            this.totals = totals;
+            long sum = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) sum += totals[i];
+            this.count = sum;
+        }
+
+        public long getCount() { return count; }
+        public long getLatencySumNanos() { return totals[SUM_SLOT]; }
+        public long getErrors() { return totals[ERRORS_SLOT]; }
+        public long getAllocatedBytes() { return totals[ALLOCATED_SLOT]; }
+
+        // Highest latency (ns) at or below which the given fraction (0..1] of requests completed
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += totals[i];
+                if (seen >= rank) return highestValueInBucket(i);
+            }
+            return MAX_TRACKABLE_NANOS;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.designpatterns.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wires request instrumentation in front of the /api/gof endpoints.
+ * gof.metrics.allocation-sample-rate measures allocations on 1 in N requests (0 turns it off).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public RequestMetrics requestMetrics(@Value("${gof.metrics.allocation-sample-rate:64}") int allocationSampleRate,
+                                         Environment environment) {
+        return new RequestMetrics(allocationSampleRate, Threading.VIRTUAL.isActive(environment));
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(RequestMetrics requestMetrics) {
+        FilterRegistrationBean<RequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestMetricsFilter(requestMetrics));
+        registration.addUrlPatterns("/api/gof/*");
+        return registration;
+    }
+}
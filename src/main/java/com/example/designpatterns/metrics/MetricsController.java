@@ -0,0 +1,29 @@
+package com.example.designpatterns.metrics;
+
+import com.example.designpatterns.limiter.ConcurrencyLimiters;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+    private final RequestMetrics requestMetrics;
+    private final ObjectProvider<ConcurrencyLimiters> limiters;
+
+    public MetricsController(RequestMetrics requestMetrics, ObjectProvider<ConcurrencyLimiters> limiters) {
+        this.requestMetrics = requestMetrics;
+        this.limiters = limiters;
+    }
+
+    /**
+     * Prometheus scrape endpoint for the GoF pattern endpoints:
+     * p50/p99/p999 latency and request/error/allocation counters per endpoint,
+     * plus the concurrency limiter's state when it is enabled.
+     */
+    @GetMapping(value = "/api/gof/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        ConcurrencyLimiters routeLimiters = limiters.getIfAvailable();
+        String metrics = requestMetrics.scrape();
+        return routeLimiters != null ? metrics + routeLimiters.scrape() : metrics;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.designpatterns.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request Metrics Registry
+ *
+ * Holds one EndpointMetrics per HTTP method and endpoint pattern (GET and POST of the same path are
+ * different operations with different latencies) and renders all of them in the Prometheus text
+ * exposition format. Everything is cumulative since startup, so a scrape never changes what the
+ * next scrape sees; throughput is left to the scraper (e.g. rate(gof_requests_total[1m])).
+ *
+ * Reading a thread's allocated bytes costs several hundred ns on JDK 17, so only one request in
+ * allocationSampleRate is measured and its allocation is scaled up; the counter is an estimate.
+ */
+public class RequestMetrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    // method -> pattern -> metrics; nested so a lookup needs no composite key
+    private final Map<String, Map<String, EndpointMetrics>> endpoints = new ConcurrentHashMap<>();
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final int allocationSampleRate;
+    private final boolean striped;
+
+    // allocationSampleRate: measure allocations on 1 in N requests, 0 disables allocation tracking
+    public RequestMetrics(int allocationSampleRate) {
+        this(allocationSampleRate, false);
+    }
+
+    // striped: share a fixed set of recorders instead of one per thread (for virtual threads, see EndpointMetrics)
+    public RequestMetrics(int allocationSampleRate, boolean striped) {
+        this.threadBean = allocationSampleRate > 0 ? allocationTrackingBean() : null;
+        this.allocationSampleRate = allocationSampleRate;
+        this.striped = striped;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationTrackingBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    // Whether the calling request should have its allocations measured
+    public boolean sampleAllocations() {
+        return threadBean != null && ThreadLocalRandom.current().nextInt(allocationSampleRate) == 0;
+    }
+
+    // Bytes allocated so far by the calling thread, or -1 when allocation tracking is off or unsupported for this thread
+    public long currentThreadAllocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    // Scales one sampled request's allocation up to the requests it stands for
+    public long estimateAllocatedBytes(long sampledBytes) {
+        return sampledBytes * allocationSampleRate;
+    }
+
+    public EndpointMetrics forEndpoint(String method, String endpoint) {
+        Map<String, EndpointMetrics> byPattern = endpoints.get(method);
+        if (byPattern == null) byPattern = endpoints.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        EndpointMetrics metrics = byPattern.get(endpoint);
+        return metrics != null ? metrics : byPattern.computeIfAbsent(endpoint, name -> new EndpointMetrics(name, striped));
+    }
+
+    public void record(String method, String endpoint, long latencyNanos, long allocatedBytes, boolean error) {
+        forEndpoint(method, endpoint).record(latencyNanos, allocatedBytes, error);
+    }
+
+    public String scrape() {
+        StringBuilder latency = new StringBuilder()
+                .append("# HELP gof_request_latency_seconds Request latency per endpoint.\n")
+                .append("# TYPE gof_request_latency_seconds summary\n");
+        StringBuilder errors = new StringBuilder()
+                .append("# HELP gof_request_errors_total Requests that failed with an exception or a 5xx status.\n")
+                .append("# TYPE gof_request_errors_total counter\n");
+        StringBuilder allocated = new StringBuilder()
+                .append("# HELP gof_request_allocated_bytes_total Heap bytes allocated by request threads (estimated from sampled requests).\n")
+                .append("# TYPE gof_request_allocated_bytes_total counter\n");
+        StringBuilder requests = new StringBuilder()
+                .append("# HELP gof_requests_total Requests completed per endpoint.\n")
+                .append("# TYPE gof_requests_total counter\n");
+
+        for (Map.Entry<String, Map<String, EndpointMetrics>> method : endpoints.entrySet()) {
+            for (EndpointMetrics metrics : method.getValue().values()) {
+                String label = "method=\"" + escape(method.getKey()) + "\",endpoint=\"" + escape(metrics.getEndpoint()) + "\"";
+                EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+                for (double quantile : QUANTILES) {
+                    latency.append("gof_request_latency_seconds{").append(label)
+                            .append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(snapshot.valueAtQuantile(quantile) / 1e9).append('\n');
+                }
+                latency.append("gof_request_latency_seconds_sum{").append(label).append("} ")
+                        .append(snapshot.getLatencySumNanos() / 1e9).append('\n');
+                latency.append("gof_request_latency_seconds_count{").append(label).append("} ")
+                        .append(snapshot.getCount()).append('\n');
+                errors.append("gof_request_errors_total{").append(label).append("} ")
+                        .append(snapshot.getErrors()).append('\n');
+                allocated.append("gof_request_allocated_bytes_total{").append(label).append("} ")
+                        .append(snapshot.getAllocatedBytes()).append('\n');
+                requests.append("gof_requests_total{").append(label).append("} ")
+                        .append(snapshot.getCount()).append('\n');
+            }
+        }
+        return latency.append(requests).append(errors).append(allocated).toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
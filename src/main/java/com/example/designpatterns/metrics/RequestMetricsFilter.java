@@ -0,0 +1,146 @@
+package com.example.designpatterns.metrics;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times every request and records it against its HTTP method and the matched handler pattern (e.g.
+ * POST "/api/gof/strategy/pay"), so the number of series stays bounded no matter which URLs clients
+ * send. Requests that match no handler are grouped under "UNMATCHED", and non-standard methods under
+ * "OTHER".
+ *
+ * Async requests (e.g. the SSE log stream) are recorded when async processing completes rather than
+ * when the first dispatch returns, so their latency covers the whole exchange. Their allocations are
+ * not tracked because the work is spread over other threads. Completion is taken from whichever comes
+ * first: the last async dispatch returning (or throwing), or the container's onComplete. A dispatch
+ * that throws because the client went away is not always followed by onComplete. A client that
+ * disconnects is how a stream normally ends, so it does not count as an error.
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    static final String UNMATCHED = "UNMATCHED";
+    static final String OTHER_METHOD = "OTHER";
+    private static final String COMPLETION_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".completion";
+
+    private final RequestMetrics metrics;
+
+    public RequestMetricsFilter(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            continueAsync(request, response, chain);
+            return;
+        }
+        long allocatedBefore = metrics.sampleAllocations() ? metrics.currentThreadAllocatedBytes() : -1;
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // The pattern is resolved now: an error dispatch may overwrite it before completion
+                CompletionListener completion = new CompletionListener(method(request), endpoint(request), response, start);
+                request.setAttribute(COMPLETION_ATTRIBUTE, completion);
+                request.getAsyncContext().addListener(completion);
+            } else {
+                long latency = System.nanoTime() - start;
+                long allocatedAfter = allocatedBefore < 0 ? -1 : metrics.currentThreadAllocatedBytes();
+                long allocated = allocatedAfter < 0 ? -1 : metrics.estimateAllocatedBytes(allocatedAfter - allocatedBefore);
+                metrics.record(method(request), endpoint(request), latency, allocated, failed || response.getStatus() >= 500);
+            }
+        }
+    }
+
+    private void continueAsync(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (request.getAttribute(COMPLETION_ATTRIBUTE) instanceof CompletionListener completion
+                    && (failure != null || !request.isAsyncStarted())) {
+                completion.record(failure != null && !DisconnectedClientHelper.isClientDisconnectedException(failure));
+            }
+        }
+    }
+
+    private static String method(HttpServletRequest request) {
+        String method = request.getMethod();
+        for (HttpMethod standard : HttpMethod.values()) {
+            if (standard.name().equals(method)) return method;
+        }
+        return OTHER_METHOD;
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof String matched ? matched : UNMATCHED;
+    }
+
+    // Records an async request exactly once, from the last dispatch or from the container's onComplete
+    private class CompletionListener implements AsyncListener {
+        private final String method;
+        private final String endpoint;
+        private final HttpServletResponse response;
+        private final long start;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private volatile boolean failed;
+
+        CompletionListener(String method, String endpoint, HttpServletResponse response, long start) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.response = response;
+            this.start = start;
+        }
+
+        void record(boolean dispatchFailed) {
+            if (recorded.compareAndSet(false, true)) {
+                boolean error = dispatchFailed || failed || response.getStatus() >= 500;
+                metrics.record(method, endpoint, System.nanoTime() - start, -1, error);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(false);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            Throwable cause = event.getThrowable();
+            if (cause == null || !DisconnectedClientHelper.isClientDisconnectedException(cause)) failed = true;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.designpatterns.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredFanOutTest {
+    private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fanout-test-");
+
+    private StructuredFanOut fanOut(Duration deadline) {
+        return new StructuredFanOut(executor, deadline);
+    }
+
+    // A subtask that blocks until interrupted and records whether it is still running
+    private static Callable<String> blocking(AtomicInteger running, AtomicInteger interrupted) {
+        return () -> {
+            running.incrementAndGet();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                return "never";
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                Thread.sleep(50); // cleanup that must still finish before invokeAll throws
+                throw e;
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    void returnsResultsInTaskOrderRegardlessOfCompletionOrder() {
+        List<Callable<Integer>> tasks = List.of(
+                () -> { Thread.sleep(80); return 0; },
+                () -> 1,
+                () -> { Thread.sleep(40); return 2; });
+
+        assertThat(fanOut(Duration.ofSeconds(5)).invokeAll(tasks)).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void firstFailureCancelsSiblingsWithoutWaitingForThem() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        Callable<String> task = blocking(running, interrupted);
+        List<Callable<String>> tasks = List.of(
+                () -> { started.countDown(); return task.call(); },
+                () -> {
+                    started.await();
+                    throw new IllegalStateException("channel down");
+                },
+                () -> { started.countDown(); return task.call(); });
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> fanOut(Duration.ofSeconds(30)).invokeAll(tasks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("channel down");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(interrupted.get()).isEqualTo(2);
+        assertThat(running.get()).isZero();
+    }
+
+    @Test
+    void missedDeadlineCancelsAndWaitsForEverySubtask() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        List<Callable<String>> tasks = List.of(
+                () -> "fast",
+                blocking(running, interrupted),
+                blocking(running, interrupted));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> fanOut(Duration.ofMillis(100)).invokeAll(tasks))
+                .isInstanceOf(FanOutException.class)
+                .hasMessageContaining("deadline");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start))
+                .isGreaterThanOrEqualTo(Duration.ofMillis(100))
+                .isLessThan(Duration.ofSeconds(5));
+        assertThat(interrupted.get()).isEqualTo(2);
+        assertThat(running.get()).isZero();
+    }
+
+    @Test
+    void subtasksCancelledBeforeStartingNeverRun() {
+        AtomicInteger ran = new AtomicInteger();
+        SimpleAsyncTaskExecutor slowStart = new SimpleAsyncTaskExecutor("fanout-test-") {
+            @Override
+            protected void doExecute(Runnable task) {
+                super.doExecute(() -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    task.run();
+                });
+            }
+        };
+        List<Callable<String>> tasks = List.of(
+                () -> { ran.incrementAndGet(); return "a"; },
+                () -> { ran.incrementAndGet(); return "b"; });
+
+        assertThatThrownBy(() -> new StructuredFanOut(slowStart, Duration.ofMillis(50)).invokeAll(tasks))
+                .isInstanceOf(FanOutException.class);
+
+        assertThat(ran.get()).isZero();
+    }
+
+    @Test
+    void checkedFailureIsWrappedInFanOutException() {
+        List<Callable<String>> tasks = List.of(() -> { throw new IOException("socket closed"); });
+
+        assertThatThrownBy(() -> fanOut(Duration.ofSeconds(5)).invokeAll(tasks))
+                .isInstanceOf(FanOutException.class)
+                .hasRootCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void interruptingTheCallerCancelsSubtasksAndKeepsTheInterruptFlag() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        Callable<String> task = blocking(running, interrupted);
+        List<Callable<String>> tasks = List.of(
+                () -> { started.countDown(); return task.call(); },
+                () -> { started.countDown(); return task.call(); });
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AtomicBoolean interruptFlag = new AtomicBoolean();
+
+        Thread caller = new Thread(() -> {
+            try {
+                fanOut(Duration.ofSeconds(30)).invokeAll(tasks);
+            } catch (Throwable e) {
+                thrown.set(e);
+                interruptFlag.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        caller.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(thrown.get()).isInstanceOf(FanOutException.class);
+        assertThat(interruptFlag.get()).isTrue();
+        assertThat(interrupted.get()).isEqualTo(2);
+        assertThat(running.get()).isZero();
+    }
+
+    @Test
+    void sequentialFanOutRunsTasksInTheCallerThread() {
+        Thread caller = Thread.currentThread();
+        List<Callable<Boolean>> tasks = List.of(() -> Thread.currentThread() == caller);
+
+        assertThat(FanOut.sequential().invokeAll(tasks)).containsExactly(true);
+    }
+}
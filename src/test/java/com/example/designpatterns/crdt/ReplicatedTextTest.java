@@ -0,0 +1,535 @@
+package com.example.designpatterns.crdt;
+
+import com.example.designpatterns.crdt.TextOperation.CharId;
+import com.example.designpatterns.crdt.TextOperation.Delete;
+import com.example.designpatterns.crdt.TextOperation.Insert;
+import com.example.designpatterns.crdt.TextOperation.Span;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicatedTextTest {
+
+    // Full delta sync from one replica to another, in batches like ReplicaSyncScheduler
+    private static void sync(ReplicatedText from, ReplicatedText to) {
+        ReplicatedText.Delta delta;
+        do {
+            delta = from.deltaSince(to.getVersionVector(), 7);
+            if (delta.snapshot() != null) to.mergeSnapshot(delta.snapshot());
+            to.merge(delta.operations());
+        } while (delta.hasMore());
+    }
+
+    // What a process does on its first pull
+    private static void bootstrap(ReplicatedText from, ReplicatedText to) {
+        to.mergeSnapshot(from.deltaSince(to.getVersionVector(), 7, true).snapshot());
+    }
+
+    // One scheduler round on every replica: pull from all the others, then compact against their vectors
+    private static void syncAndCompactAll(List<ReplicatedText> replicas) {
+        syncAll(replicas);
+        for (ReplicatedText replica : replicas) {
+            Map<String, Map<String, Long>> peerVersions = new HashMap<>();
+            for (ReplicatedText peer : replicas) {
+                if (peer != replica) peerVersions.put(peer.getReplicaId(), peer.getVersionVector());
+            }
+            replica.compact(peerVersions);
+        }
+    }
+
+    private static void syncAll(List<ReplicatedText> replicas) {
+        for (ReplicatedText from : replicas) {
+            for (ReplicatedText to : replicas) {
+                if (from != to) sync(from, to);
+            }
+        }
+    }
+
+    private static List<TextOperation> operations(ReplicatedText replica) {
+        return replica.deltaSince(Map.of(), Integer.MAX_VALUE).operations();
+    }
+
+    @Test
+    void operationsDeliveredOutOfOrderWaitInPending() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "ab");
+        a.type("u", "cd");
+        a.type("u", "ef");
+        List<TextOperation> ops = operations(a);
+        ReplicatedText b = new ReplicatedText("b");
+
+        assertThat(b.merge(List.of(ops.get(2), ops.get(1)))).isZero();
+        assertThat(b.getPendingCount()).isEqualTo(2);
+        assertThat(b.getText()).isEmpty();
+
+        assertThat(b.merge(List.of(ops.get(0)))).isEqualTo(3);
+        assertThat(b.getPendingCount()).isZero();
+        assertThat(b.getText()).isEqualTo("abcdef");
+        assertThat(b.getVersionVector()).isEqualTo(a.getVersionVector());
+    }
+
+    @Test
+    void deleteWaitsForTheInsertItRemoves() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "hello");
+        a.undoLast("u");
+        List<TextOperation> ops = operations(a);
+        ReplicatedText b = new ReplicatedText("b");
+
+        b.merge(List.of(ops.get(1)));
+        assertThat(b.getPendingCount()).isEqualTo(1);
+
+        b.merge(List.of(ops.get(0)));
+        assertThat(b.getPendingCount()).isZero();
+        assertThat(b.getText()).isEmpty();
+    }
+
+    @Test
+    void redeliveredOperationsAreIgnored() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "abc");
+        a.undoLast("u");
+        a.type("u", "xyz");
+        ReplicatedText b = new ReplicatedText("b");
+
+        assertThat(b.merge(operations(a))).isEqualTo(3);
+        assertThat(b.merge(operations(a))).isZero();
+        assertThat(b.merge(List.of(operations(a).get(1)))).isZero();
+
+        assertThat(b.getText()).isEqualTo("xyz");
+        assertThat(b.getOperationCount()).isEqualTo(3);
+        assertThat(b.getPendingCount()).isZero();
+    }
+
+    @Test
+    void redeliveringAnOperationThatIsStillPendingDoesNotQueueItTwice() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "ab");
+        a.type("u", "cd");
+        List<TextOperation> ops = operations(a);
+        ReplicatedText b = new ReplicatedText("b");
+
+        b.merge(List.of(ops.get(1)));
+        b.merge(List.of(ops.get(1)));
+
+        assertThat(b.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentInsertsAtTheSameOriginConvergeInEveryDeliveryOrder() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        ReplicatedText c = new ReplicatedText("c");
+        a.type("u", "x");
+        sync(a, b);
+        sync(a, c);
+
+        // all three type behind the same character without seeing each other
+        a.type("u", "AA");
+        b.type("u", "BB");
+        c.type("u", "CC");
+
+        ReplicatedText forward = new ReplicatedText("d");
+        forward.merge(operations(a));
+        forward.merge(operations(b));
+        forward.merge(operations(c));
+        ReplicatedText backward = new ReplicatedText("e");
+        backward.merge(operations(c));
+        backward.merge(operations(b));
+        backward.merge(operations(a));
+        syncAll(List.of(a, b, c));
+
+        // same clock, so ties are broken by replica id, greatest first
+        assertThat(a.getText()).isEqualTo("xCCBBAA");
+        assertThat(b.getText()).isEqualTo(a.getText());
+        assertThat(c.getText()).isEqualTo(a.getText());
+        assertThat(forward.getText()).isEqualTo(a.getText());
+        assertThat(backward.getText()).isEqualTo(a.getText());
+    }
+
+    @Test
+    void runTypedBehindAConcurrentInsertStaysTogether() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("u", "x");
+        sync(a, b);
+        b.type("u", "1");   // clock 2
+        a.type("u", "y");   // clock 2, behind x
+        a.type("u", "z");   // extends a's run
+        sync(b, a);
+        sync(a, b);
+
+        // "1" wins the tie behind x (replica b > a), and z follows y rather than landing after "1"
+        assertThat(a.getText()).isEqualTo(b.getText()).isEqualTo("x1yz");
+    }
+
+    @Test
+    void insertInsideARunSplitsIt() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "hello");
+        assertThat(a.getItemCount()).isEqualTo(1);
+
+        // a remote replica typed behind the second character of a's run
+        Insert inside = new Insert("r", 1, "v", 6, new CharId("a", 2), "Z");
+        assertThat(a.merge(List.of(inside))).isEqualTo(1);
+
+        assertThat(a.getText()).isEqualTo("heZllo");
+        assertThat(a.getItemCount()).isEqualTo(3);
+    }
+
+    @Test
+    void deleteAcrossSplitRunsRemovesExactlyItsSpan() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "abcdef");
+        a.merge(List.of(new Insert("r", 1, "v", 7, new CharId("a", 3), "XY")));
+        assertThat(a.getText()).isEqualTo("abcXYdef");
+
+        // delete a's clocks 2..5 ("bcde"), which now spans both halves of the split run
+        a.merge(List.of(new Delete("r", 2, "v", List.of(new Span("a", 2, 4)), null)));
+
+        assertThat(a.getText()).isEqualTo("aXYf");
+        assertThat(a.getItemCount()).isEqualTo(5);
+    }
+
+    @Test
+    void typingBehindOwnRunExtendsItInsteadOfAddingItems() {
+        ReplicatedText a = new ReplicatedText("a");
+        a.type("u", "ab");
+        a.type("u", "cd");
+        a.type("v", "ef");
+
+        assertThat(a.getText()).isEqualTo("abcdef");
+        assertThat(a.getItemCount()).isEqualTo(1);
+        assertThat(a.getOperationCount()).isEqualTo(3);
+    }
+
+    @Test
+    void undoOnAnotherReplicaRemovesOnlyThatUsersLatestInsert() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "Hello ");
+        a.type("alice", "world");
+        sync(a, b);
+        b.type("bob", "!");
+        sync(b, a);
+
+        // alice fails over to replica b and undoes there
+        Insert undone = b.undoLast("alice");
+        assertThat(undone.text()).isEqualTo("world");
+        sync(b, a);
+
+        assertThat(a.getText()).isEqualTo(b.getText()).isEqualTo("Hello !");
+        assertThat(a.undoLast("alice").text()).isEqualTo("Hello ");
+        sync(a, b);
+        assertThat(b.getText()).isEqualTo("!");
+        assertThat(b.undoLast("alice")).isNull();
+        assertThat(b.undoLast("bob").text()).isEqualTo("!");
+    }
+
+    @Test
+    void concurrentUndoOfTheSameInsertOnTwoReplicasConverges() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "one ");
+        a.type("alice", "two");
+        sync(a, b);
+
+        a.undoLast("alice");
+        b.undoLast("alice");
+        sync(a, b);
+        sync(b, a);
+
+        assertThat(a.getText()).isEqualTo(b.getText()).isEqualTo("one ");
+        assertThat(a.undoLast("alice").text()).isEqualTo("one ");
+        sync(a, b);
+        assertThat(b.undoLast("alice")).isNull();
+    }
+
+    @Test
+    void concurrentUndoLastOnOneReplicaUndoesDistinctInserts() throws Exception {
+        int inserts = 200;
+        ReplicatedText a = new ReplicatedText("a", inserts);
+        for (int i = 0; i < inserts; i++) a.type("alice", "x");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> undone = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                undone.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    while (a.undoLast("alice") != null) count++;
+                    return count;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : undone) total += future.get(10, TimeUnit.SECONDS);
+
+            assertThat(total).isEqualTo(inserts);
+            assertThat(a.getText()).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void undoHistoryIsBoundedPerUser() {
+        ReplicatedText a = new ReplicatedText("a", 2);
+        a.type("alice", "1");
+        a.type("alice", "2");
+        a.type("alice", "3");
+
+        assertThat(a.undoLast("alice").text()).isEqualTo("3");
+        assertThat(a.undoLast("alice").text()).isEqualTo("2");
+        assertThat(a.undoLast("alice")).isNull();
+        assertThat(a.getText()).isEqualTo("1");
+    }
+
+    @Test
+    void restartedProcessWithTheSameNameIsANewReplica() {
+        ReplicatedText pod = new ReplicatedText(ReplicaSyncConfig.newReplicaId("pod-0"));
+        ReplicatedText peer = new ReplicatedText(ReplicaSyncConfig.newReplicaId("pod-1"));
+        pod.type("alice", "before restart ");
+        sync(pod, peer);
+
+        // the container restarts in the same pod: same name, empty state
+        ReplicatedText restarted = new ReplicatedText(ReplicaSyncConfig.newReplicaId("pod-0"));
+        assertThat(restarted.getReplicaId()).startsWith("pod-0-").isNotEqualTo(pod.getReplicaId());
+
+        // it types before catching up; its first operation is seq 1 again, but under a new id
+        restarted.type("bob", "after restart");
+        sync(restarted, peer);
+        sync(peer, restarted);
+
+        assertThat(peer.getText()).contains("before restart ").contains("after restart");
+        assertThat(restarted.getText()).isEqualTo(peer.getText());
+        assertThat(peer.getVersionVector()).hasSize(2);
+    }
+
+    @Test
+    void compactionDropsOnlyWhatEveryPeerHasApplied() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        ReplicatedText c = new ReplicatedText("c");
+        a.type("alice", "hello ");
+        a.type("alice", "world");
+        sync(a, b);
+
+        // c has not seen anything yet, so nothing can go
+        assertThat(a.compact(Map.of("b", b.getVersionVector(), "c", c.getVersionVector()))).isZero();
+        sync(a, c);
+        a.type("alice", "!");
+        assertThat(a.compact(Map.of("b", b.getVersionVector(), "c", c.getVersionVector()))).isEqualTo(2);
+        assertThat(a.getOperationCount()).isEqualTo(1);
+
+        // the peers that are up to date keep getting plain deltas
+        sync(a, b);
+        sync(a, c);
+        assertThat(b.getText()).isEqualTo("hello world!");
+        assertThat(c.getText()).isEqualTo("hello world!");
+        assertThat(a.deltaSince(b.getVersionVector(), 7).snapshot()).isNull();
+    }
+
+    @Test
+    void replicaBehindTheCompactedLogCatchesUpFromASnapshot() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "shared ");
+        sync(a, b);
+        b.type("bob", "text ");
+        sync(b, a);
+        a.compact(Map.of("b", b.getVersionVector()));
+        b.compact(Map.of("a", a.getVersionVector()));
+        assertThat(a.getOperationCount()).isZero();
+
+        // a new process types before it has caught up
+        ReplicatedText c = new ReplicatedText("c");
+        c.type("carol", "mine");
+        ReplicatedText.Delta delta = a.deltaSince(c.getVersionVector(), 7);
+        assertThat(delta.operations()).isEmpty();
+        assertThat(delta.snapshot()).isNotNull();
+        c.mergeSnapshot(delta.snapshot());
+        c.mergeSnapshot(delta.snapshot()); // idempotent
+        sync(c, a);
+        sync(c, b);
+
+        assertThat(c.getText()).isEqualTo(a.getText()).isEqualTo(b.getText()).contains("shared text ", "mine");
+        assertThat(c.getVersionVector()).isEqualTo(a.getVersionVector()).isEqualTo(b.getVersionVector());
+        // only c's own operation is left to hand out; what came in the snapshot cannot be resent
+        assertThat(c.getOperationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void snapshotAppliesDeletionsAndFillsInPartlyKnownRuns() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "abc");
+        sync(a, b);
+        a.type("alice", "def"); // extends the run b already has part of
+        Insert bob = b.type("bob", "XY");
+        sync(b, a);
+        a.undo(bob);
+
+        b.mergeSnapshot(a.snapshot());
+
+        assertThat(b.getText()).isEqualTo(a.getText()).isEqualTo("abcdef");
+        assertThat(b.getVersionVector()).isEqualTo(a.getVersionVector());
+        assertThat(b.getItemCount()).isEqualTo(a.getItemCount());
+    }
+
+    @Test
+    void goneReplicaIsRetiredFromTheVersionVectorAndItsResentOperationsAreIgnored() {
+        ReplicatedText gone = new ReplicatedText("gone");
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        gone.type("alice", "before restart ");
+        sync(gone, a);
+        sync(gone, b);
+        a.type("bob", "after");
+        sync(a, b);
+
+        for (int round = 0; round < ReplicatedText.RETIRE_AFTER_ROUNDS; round++) {
+            a.compact(Map.of("b", b.getVersionVector()));
+        }
+        assertThat(a.getVersionVector()).containsOnlyKeys("a");
+        assertThat(a.getOperationCount()).isZero();
+
+        // b still lists the gone replica: a is not treated as behind, and a resend is recognised
+        assertThat(b.deltaSince(a.getVersionVector(), 7).snapshot()).isNull();
+        a.merge(operations(gone));
+        assertThat(a.getText()).isEqualTo("before restart after");
+        assertThat(a.getPendingCount()).isZero();
+
+        // and it does not block b from retiring the gone replica as well
+        for (int round = 0; round < ReplicatedText.RETIRE_AFTER_ROUNDS; round++) {
+            a.compact(Map.of("b", b.getVersionVector()));
+            b.compact(Map.of("a", a.getVersionVector()));
+        }
+        assertThat(a.getVersionVector()).isEqualTo(b.getVersionVector()).containsOnlyKeys("a");
+        assertThat(b.getText()).isEqualTo(a.getText());
+    }
+
+    @Test
+    void peersDoNotRetireEachOther() {
+        ReplicatedText a = new ReplicatedText("a");
+        ReplicatedText b = new ReplicatedText("b");
+        a.type("alice", "x");
+        b.type("bob", "y");
+        for (int round = 0; round <= ReplicatedText.RETIRE_AFTER_ROUNDS; round++) {
+            syncAndCompactAll(List.of(a, b));
+        }
+        assertThat(a.getVersionVector()).containsOnlyKeys("a", "b");
+        assertThat(b.getVersionVector()).containsOnlyKeys("a", "b");
+        assertThat(a.getOperationCount()).isZero();
+    }
+
+    // Random edits on several replicas, exchanged as random subsets of deltas in shuffled order
+    // (so operations regularly arrive before their dependencies or twice), converge once fully synced.
+    @RepeatedTest(200)
+    void randomShuffledPartialSyncsConverge(RepetitionInfo repetition) {
+        Random random = new Random(repetition.getCurrentRepetition());
+        int replicaCount = 2 + random.nextInt(3);
+        List<ReplicatedText> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaCount; i++) replicas.add(new ReplicatedText("r" + i, 5));
+        String[] users = {"alice", "bob", "carol"};
+
+        for (int step = 0; step < 150; step++) {
+            ReplicatedText replica = replicas.get(random.nextInt(replicaCount));
+            int action = random.nextInt(10);
+            if (action < 5) {
+                replica.type(users[random.nextInt(users.length)], randomText(random));
+            } else if (action < 7) {
+                replica.undoLast(users[random.nextInt(users.length)]);
+            } else {
+                ReplicatedText to = replicas.get(random.nextInt(replicaCount));
+                if (to == replica) continue;
+                List<TextOperation> delta = new ArrayList<>(
+                        replica.deltaSince(to.getVersionVector(), 1 + random.nextInt(20)).operations());
+                Collections.shuffle(delta, random);
+                to.merge(delta.subList(0, random.nextInt(delta.size() + 1)));
+                if (!delta.isEmpty() && random.nextBoolean()) {
+                    to.merge(List.of(delta.get(random.nextInt(delta.size())))); // redelivery
+                }
+            }
+        }
+        syncAll(replicas);
+        syncAll(replicas);
+
+        ReplicatedText first = replicas.get(0);
+        for (ReplicatedText replica : replicas) {
+            assertThat(replica.getText()).isEqualTo(first.getText());
+            assertThat(replica.getVersionVector()).isEqualTo(first.getVersionVector());
+            assertThat(replica.getPendingCount()).isZero();
+            assertThat(replica.getOperationCount()).isEqualTo(first.getOperationCount());
+        }
+    }
+
+    // Replicas edit, sync and compact at random while processes restart under new ids (catching up from a
+    // snapshot); the document converges, the logs empty out and only live replicas stay in the vectors.
+    @RepeatedTest(100)
+    void randomSyncsWithCompactionAndRestartsConverge(RepetitionInfo repetition) {
+        Random random = new Random(repetition.getCurrentRepetition());
+        int replicaCount = 2 + random.nextInt(3);
+        List<ReplicatedText> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaCount; i++) replicas.add(new ReplicatedText("r" + i + "-0", 5));
+        String[] users = {"alice", "bob", "carol"};
+        int restarts = 0;
+
+        for (int step = 0; step < 150; step++) {
+            int slot = random.nextInt(replicaCount);
+            ReplicatedText replica = replicas.get(slot);
+            int action = random.nextInt(20);
+            if (action < 9) {
+                replica.type(users[random.nextInt(users.length)], randomText(random));
+            } else if (action < 12) {
+                replica.undoLast(users[random.nextInt(users.length)]);
+            } else if (action < 17) {
+                ReplicatedText to = replicas.get(random.nextInt(replicaCount));
+                if (to != replica) sync(replica, to);
+            } else if (action < 19) {
+                syncAndCompactAll(replicas);
+            } else {
+                // restart: whatever it had not handed out yet is lost with the process
+                ReplicatedText restarted = new ReplicatedText("r" + slot + "-" + ++restarts, 5);
+                if (random.nextBoolean()) restarted.type(users[random.nextInt(users.length)], randomText(random));
+                bootstrap(replicas.get((slot + 1) % replicaCount), restarted);
+                replicas.set(slot, restarted);
+            }
+        }
+        for (int round = 0; round <= ReplicatedText.RETIRE_AFTER_ROUNDS; round++) {
+            syncAndCompactAll(replicas);
+        }
+
+        ReplicatedText first = replicas.get(0);
+        for (ReplicatedText replica : replicas) {
+            assertThat(replica.getText()).isEqualTo(first.getText());
+            assertThat(replica.getVersionVector()).isEqualTo(first.getVersionVector());
+            assertThat(replica.getPendingCount()).isZero();
+            assertThat(replica.getOperationCount()).isZero();
+            assertThat(replica.getVersionVector().keySet())
+                    .allMatch(id -> replicas.stream().anyMatch(live -> live.getReplicaId().equals(id)));
+        }
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(4);
+        for (int i = 0; i < length; i++) text.append((char) ('a' + random.nextInt(26)));
+        return text.toString();
+    }
+}
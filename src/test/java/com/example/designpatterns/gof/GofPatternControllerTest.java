@@ -0,0 +1,191 @@
+package com.example.designpatterns.gof;
+
+import com.example.designpatterns.concurrency.FanOut;
+import com.example.designpatterns.concurrency.FanOutException;
+import com.example.designpatterns.limiter.ConcurrencyLimitInterceptor;
+import com.example.designpatterns.limiter.ConcurrencyLimiters;
+import com.example.designpatterns.limiter.RouteLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GofPatternControllerTest {
+    private static final String BROADCAST = "/api/gof/factory/broadcast";
+    private static final String OBSERVER = "/api/gof/observer/stock";
+
+    private static final String LOG = "/api/gof/singleton/log";
+
+    private final ConcurrencyLimiters limiters = new ConcurrencyLimiters(20, 1, 200, 0, 0);
+    private final SingletonExample logger = SingletonExample.getInstance();
+    private SingletonLogBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        if (broadcaster != null) broadcaster.stop();
+        logger.setMaxEntries(SingletonExample.DEFAULT_MAX_ENTRIES);
+    }
+
+    private MockMvc mvc(FanOut fanOut) {
+        return mvc(fanOut, null);
+    }
+
+    private MockMvc mvc(FanOut fanOut, SingletonLogBroadcaster broadcaster) {
+        GofPatternController controller = new GofPatternController(fanOut, broadcaster, null);
+        return MockMvcBuilders.standaloneSetup(controller)
+                .addInterceptors(new ConcurrencyLimitInterceptor(limiters))
+                .build();
+    }
+
+    private static FanOut failingWith(FanOutException failure) {
+        return new FanOut() {
+            public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+                throw failure;
+            }
+        };
+    }
+
+    @Test
+    void missedFanOutDeadlineIsA504AndShrinksTheRouteLimit() throws Exception {
+        FanOut timingOut = failingWith(new FanOutException("Fan-out missed its deadline of 2000 ms", null, true));
+
+        mvc(timingOut).perform(post(BROADCAST).param("types", "email,sms").param("to", "a").param("message", "hi"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(content().string("Error: Fan-out missed its deadline of 2000 ms"));
+
+        assertThat(limiters.forRoute("POST", BROADCAST).getLimit()).isLessThan(20);
+        assertThat(limiters.forRoute("POST", BROADCAST).getInflight()).isZero();
+    }
+
+    @Test
+    void failedFanOutSubtaskIsA503AndShrinksTheRouteLimit() throws Exception {
+        FanOut failing = failingWith(new FanOutException("Subtask failed: socket closed", new IOException("socket closed")));
+
+        mvc(failing).perform(post(OBSERVER).param("stock", "ACME").param("oldPrice", "100").param("newPrice", "101"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string("Error: Subtask failed: socket closed"));
+
+        assertThat(limiters.forRoute("POST", OBSERVER).getLimit()).isLessThan(20);
+    }
+
+    @Test
+    void unknownChannelIsStillReportedInTheBody() throws Exception {
+        mvc(FanOut.sequential()).perform(post(BROADCAST).param("types", "fax").param("to", "a").param("message", "hi"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("Error: ")));
+
+        assertThat(limiters.forRoute("POST", BROADCAST).getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void getAndPostOfTheSamePathHaveSeparateLimits() throws Exception {
+        // use up every POST permit; GET of the same path is limited on its own
+        RouteLimiter postLimiter = limiters.forRoute("POST", LOG);
+        while (postLimiter.tryAcquire()) { }
+        MockMvc mvc = mvc(FanOut.sequential());
+
+        mvc.perform(post(LOG).param("message", "limited")).andExpect(status().isServiceUnavailable());
+        mvc.perform(get(LOG)).andExpect(status().isOk());
+
+        assertThat(limiters.forRoute("GET", LOG)).isNotSameAs(postLimiter);
+        assertThat(limiters.forRoute("GET", LOG).getInflight()).isZero();
+        assertThat(limiters.scrape())
+                .contains("gof_limiter_rejected_total{method=\"POST\",endpoint=\"" + LOG + "\"} 1")
+                .contains("gof_limiter_rejected_total{method=\"GET\",endpoint=\"" + LOG + "\"} 0");
+    }
+
+    @Test
+    void streamClientThatDisconnectedIsResolvedQuietly() throws Exception {
+        GofPatternController controller = new GofPatternController(FanOut.sequential(), null, null);
+
+        controller.streamClientGone(new IOException("Broken pipe"));
+        assertThatThrownBy(() -> controller.streamClientGone(new IOException("Disk full")))
+                .hasMessage("Disk full");
+    }
+
+    @Test
+    void logPageAfterTheLastEntryIsEmptyAndKeepsTheCursor() throws Exception {
+        long last = logger.log("page-last");
+
+        mvc(FanOut.sequential()).perform(get(LOG).param("after", Long.toString(last)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries", hasSize(0)))
+                .andExpect(jsonPath("$.nextCursor").value(last))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.cursorExpired").value(false));
+    }
+
+    @Test
+    void logPageIsLimitedAndPointsAtTheNextPage() throws Exception {
+        long base = logger.log("page-base");
+        for (int i = 1; i <= 3; i++) logger.log("page-" + i);
+        MockMvc mvc = mvc(FanOut.sequential());
+
+        mvc.perform(get(LOG).param("after", Long.toString(base)).param("limit", "2"))
+                .andExpect(jsonPath("$.entries[*].message", contains("page-1", "page-2")))
+                .andExpect(jsonPath("$.nextCursor").value(base + 2))
+                .andExpect(jsonPath("$.hasMore").value(true));
+        mvc.perform(get(LOG).param("after", Long.toString(base + 2)).param("limit", "2"))
+                .andExpect(jsonPath("$.entries[*].message", contains("page-3")))
+                .andExpect(jsonPath("$.nextCursor").value(base + 3))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void expiredCursorIsFlaggedAndTheLogPageStartsAtTheOldestRetainedEntry() throws Exception {
+        logger.setMaxEntries(3);
+        long cursor = logger.log("expired-0");
+        for (int i = 1; i <= 5; i++) logger.log("expired-" + i);
+
+        mvc(FanOut.sequential()).perform(get(LOG).param("after", Long.toString(cursor)))
+                .andExpect(jsonPath("$.cursorExpired").value(true))
+                .andExpect(jsonPath("$.firstSequence").value(cursor + 3))
+                .andExpect(jsonPath("$.entries[*].message", contains("expired-3", "expired-4", "expired-5")))
+                .andExpect(jsonPath("$.nextCursor").value(cursor + 5))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void streamResumesAfterLastEventIdRatherThanTheAfterParameter() throws Exception {
+        broadcaster = new SingletonLogBroadcaster(Duration.ofMinutes(1), Duration.ofSeconds(5),
+                SingletonExample.DEFAULT_MAX_ENTRIES, 2);
+        broadcaster.start();
+        long before = logger.log("resume-before");
+        long seen = logger.log("resume-seen");
+        logger.log("resume-missed");
+
+        MockHttpServletResponse response = mvc(FanOut.sequential(), broadcaster)
+                .perform(get(LOG + "/stream").param("after", Long.toString(before - 1))
+                        .header("Last-Event-ID", Long.toString(seen)))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!response.getContentAsString().contains("data:resume-missed\n")) {
+            assertThat(System.nanoTime()).as("missed entry not streamed in time").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+        assertThat(response.getContentAsString())
+                .contains("id:" + (seen + 1) + "\nevent:log\ndata:resume-missed\n")
+                .doesNotContain("resume-before", "resume-seen");
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.designpatterns.gof;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingletonExampleTest {
+    private final SingletonExample logger = SingletonExample.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        logger.clearLogHistory();
+        logger.setMaxEntries(5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.setMaxEntries(SingletonExample.DEFAULT_MAX_ENTRIES);
+        logger.clearLogHistory();
+    }
+
+    private static List<String> messages(List<SingletonExample.LogEntry> entries) {
+        return entries.stream().map(SingletonExample.LogEntry::message).toList();
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentEntries() {
+        long base = logger.getLastSequence();
+        for (int i = 1; i <= 8; i++) logger.log("m" + i);
+
+        assertThat(logger.getFirstSequence()).isEqualTo(base + 4);
+        assertThat(logger.getLastSequence()).isEqualTo(base + 8);
+        assertThat(messages(logger.getEntriesAfter(0, 100))).containsExactly("m4", "m5", "m6", "m7", "m8");
+        assertThat(messages(logger.getLatestEntries(2))).containsExactly("m7", "m8");
+    }
+
+    @Test
+    void cursorOlderThanTheRetainedRangeIsExpired() {
+        long base = logger.getLastSequence();
+        for (int i = 1; i <= 8; i++) logger.log("m" + i);
+
+        assertThat(logger.isExpired(base + 1)).isTrue();
+        assertThat(logger.isExpired(base + 3)).isFalse(); // next entry, base + 4, is still retained
+        assertThat(logger.isExpired(0)).isFalse();        // 0 reads from the oldest retained entry
+        assertThat(messages(logger.getEntriesAfter(base + 1, 2))).containsExactly("m4", "m5");
+        assertThat(messages(logger.getEntriesAfter(base + 6, 100))).containsExactly("m7", "m8");
+    }
+
+    @Test
+    void shrinkingKeepsTheNewestEntries() {
+        for (int i = 1; i <= 5; i++) logger.log("m" + i);
+
+        logger.setMaxEntries(2);
+        logger.log("m6");
+
+        assertThat(messages(logger.getEntriesAfter(0, 100))).containsExactly("m5", "m6");
+    }
+
+    @Test
+    void clearKeepsSequenceNumbersMonotonic() {
+        long first = logger.log("before");
+        logger.clearLogHistory();
+        long second = logger.log("after");
+
+        assertThat(second).isEqualTo(first + 1);
+        assertThat(logger.isExpired(first - 1)).isTrue();
+        assertThat(messages(logger.getEntriesAfter(0, 100))).containsExactly("after");
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.designpatterns.gof;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingletonLogBroadcasterTest {
+    private final SingletonExample logger = SingletonExample.getInstance();
+    private SingletonLogBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        if (broadcaster != null) broadcaster.stop();
+        logger.setMaxEntries(SingletonExample.DEFAULT_MAX_ENTRIES);
+    }
+
+    private SingletonLogBroadcaster start(Duration sendTimeout, int retention, int senderThreads) {
+        broadcaster = new SingletonLogBroadcaster(Duration.ofMinutes(1), sendTimeout, retention, senderThreads);
+        broadcaster.start();
+        return broadcaster;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    // Records what the broadcaster writes, like the SSE text a browser would read
+    private static class RecordingEmitter extends SseEmitter {
+        private final StringBuffer received = new StringBuffer();
+        volatile CountDownLatch stall; // while set, writes block until it is released
+        volatile IOException failure;  // while set, writes fail as if the client had gone away
+        volatile boolean completed;
+        volatile boolean completedWithError;
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            if (failure != null) throw failure;
+            CountDownLatch latch = stall;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (DataWithMediaType item : items) received.append(item.getData());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            completedWithError = true;
+        }
+
+        String received() {
+            return received.toString();
+        }
+    }
+
+    @Test
+    void deliversOnlyTheEntriesAfterTheCursorThenNewOnes() throws Exception {
+        start(Duration.ofSeconds(5), SingletonExample.DEFAULT_MAX_ENTRIES, 2);
+        long seen = logger.log("broadcast-seen");
+        logger.log("broadcast-missed");
+        RecordingEmitter client = new RecordingEmitter();
+
+        broadcaster.subscribe(client, seen);
+        await(() -> client.received().contains("data:broadcast-missed\n"));
+        long live = logger.log("broadcast-live");
+        await(() -> client.received().contains("data:broadcast-live\n"));
+
+        assertThat(client.received())
+                .doesNotContain("broadcast-seen")
+                .contains("id:" + live + "\nevent:log\ndata:broadcast-live\n\n");
+    }
+
+    @Test
+    void expiredCursorGetsACursorExpiredEventThenTheRetainedEntries() throws Exception {
+        start(Duration.ofSeconds(5), 3, 2);
+        long cursor = logger.log("expired-0");
+        for (int i = 1; i <= 5; i++) logger.log("expired-" + i);
+        RecordingEmitter client = new RecordingEmitter();
+
+        broadcaster.subscribe(client, cursor);
+        await(() -> client.received().contains("data:expired-5\n"));
+
+        assertThat(client.received())
+                .startsWith("event:" + SingletonLogBroadcaster.CURSOR_EXPIRED_EVENT + "\ndata:" + (cursor + 3) + "\n\n")
+                .doesNotContain("data:expired-2\n")
+                .contains("data:expired-3\n", "data:expired-4\n");
+    }
+
+    @Test
+    void clientThatWentAwayIsRemovedAndItsStreamEndedNormally() throws Exception {
+        start(Duration.ofSeconds(5), SingletonExample.DEFAULT_MAX_ENTRIES, 2);
+        RecordingEmitter gone = new RecordingEmitter();
+        gone.failure = new IOException("Broken pipe");
+        broadcaster.subscribe(gone, logger.getLastSequence());
+
+        logger.log("after-disconnect");
+        await(() -> gone.completed);
+
+        assertThat(gone.completedWithError).isFalse();
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    void stalledClientIsDroppedWithoutDelayingTheOthers() throws Exception {
+        start(Duration.ofMillis(200), SingletonExample.DEFAULT_MAX_ENTRIES, 2);
+        long cursor = logger.getLastSequence();
+        RecordingEmitter stalled = new RecordingEmitter();
+        stalled.stall = new CountDownLatch(1);
+        RecordingEmitter healthy = new RecordingEmitter();
+        broadcaster.subscribe(stalled, cursor);
+        broadcaster.subscribe(healthy, cursor);
+
+        long start = System.nanoTime();
+        logger.log("stall-1");
+        await(() -> healthy.received().contains("data:stall-1\n"));
+        logger.log("stall-2");
+        await(() -> healthy.received().contains("data:stall-2\n"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).as("not held up by the stalled write").isLessThan(Duration.ofMillis(200));
+
+        // dropped after the send timeout, without waiting for (or blocking on) its stuck write
+        await(() -> broadcaster.getSubscriberCount() == 1);
+        assertThat(stalled.completed).isFalse();
+        logger.log("stall-3");
+        await(() -> healthy.received().contains("data:stall-3\n"));
+
+        // once the write returns, its sender ends the stream; nothing more is sent to it
+        stalled.stall.countDown();
+        await(() -> stalled.completed);
+        logger.log("stall-4");
+        await(() -> healthy.received().contains("data:stall-4\n"));
+        assertThat(stalled.received()).contains("data:stall-1\n").doesNotContain("stall-2", "stall-4");
+        assertThat(stalled.completedWithError).isFalse();
+    }
+
+    @Test
+    void clientsBeyondTheSendQueueAreDroppedInsteadOfQueued() throws Exception {
+        start(Duration.ofMinutes(1), SingletonExample.DEFAULT_MAX_ENTRIES, 1);
+        long cursor = logger.getLastSequence();
+        CountDownLatch stall = new CountDownLatch(1);
+        int clients = SingletonLogBroadcaster.SEND_QUEUE_CAPACITY + 2; // one sending, a full queue, one over
+        RecordingEmitter[] emitters = new RecordingEmitter[clients];
+        for (int i = 0; i < clients; i++) {
+            emitters[i] = new RecordingEmitter();
+            emitters[i].stall = stall;
+            broadcaster.subscribe(emitters[i], cursor);
+        }
+
+        logger.log("overflow");
+        await(() -> broadcaster.getSubscriberCount() == clients - 1);
+        stall.countDown();
+
+        long dropped = java.util.Arrays.stream(emitters).filter(emitter -> emitter.completed).count();
+        assertThat(dropped).isEqualTo(1);
+        for (RecordingEmitter emitter : emitters) {
+            if (!emitter.completed) await(() -> emitter.received().contains("data:overflow\n"));
+        }
+    }
+}
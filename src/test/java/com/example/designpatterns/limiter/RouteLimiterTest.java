@@ -0,0 +1,247 @@
+package com.example.designpatterns.limiter;
+
+import com.example.designpatterns.limiter.RouteLimiter.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteLimiterTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // A limiter whose limit never adapts, so admission can be checked against a known number
+    private static RouteLimiter fixed(int limit, int queueCapacity, Duration maxQueueWait) {
+        return new RouteLimiter(new VegasLimit(limit, limit, limit, 1000), queueCapacity, maxQueueWait.toNanos());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private Future<Boolean> acquireAsync(RouteLimiter limiter, Priority priority, Queue<String> admitted, String name) {
+        return executor.submit(() -> {
+            if (!limiter.acquire(priority)) return false;
+            admitted.add(name);
+            limiter.release(1_000, false);
+            return true;
+        });
+    }
+
+    @Test
+    void admitsUpToTheLimitAndShedsTheRestWithoutAQueue() {
+        RouteLimiter limiter = fixed(2, 0, Duration.ZERO);
+
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+        assertThat(limiter.acquire(Priority.HIGH)).isTrue();
+        assertThat(limiter.acquire(Priority.HIGH)).isFalse();
+        assertThat(limiter.getInflight()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+
+        limiter.release(1_000, false);
+        assertThat(limiter.acquire(Priority.LOW)).isTrue();
+    }
+
+    @Test
+    void inflightNeverExceedsTheLimitAndNothingLeaksUnderContention() throws Exception {
+        int limit = 10;
+        RouteLimiter limiter = fixed(limit, 4, Duration.ofNanos(200_000));
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicLong admitted = new AtomicLong();
+        AtomicLong shed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Priority[] priorities = Priority.values();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 64; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 2_000; i++) {
+                    if (!limiter.acquire(priorities[random.nextInt(priorities.length)])) {
+                        shed.incrementAndGet();
+                        continue;
+                    }
+                    int now = concurrent.incrementAndGet();
+                    maxConcurrent.accumulateAndGet(now, Math::max);
+                    if (random.nextInt(4) == 0) LockSupport.parkNanos(random.nextInt(100_000));
+                    concurrent.decrementAndGet();
+                    admitted.incrementAndGet();
+                    limiter.release(1_000, false);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(60, TimeUnit.SECONDS);
+
+        assertThat(maxConcurrent.get()).isLessThanOrEqualTo(limit);
+        assertThat(admitted.get() + shed.get()).isEqualTo(64 * 2_000);
+        assertThat(limiter.getRejected()).isEqualTo(shed.get());
+        assertThat(shed.get()).as("the queue must have overflowed for this test to mean anything").isPositive();
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.getQueued()).isZero();
+    }
+
+    @Test
+    void abandonedWaitersGiveBackTheirQueueSlots() throws Exception {
+        RouteLimiter limiter = fixed(1, 8, Duration.ofMillis(20));
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+
+        List<Future<Boolean>> waiters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            waiters.add(executor.submit(() -> limiter.acquire(Priority.NORMAL)));
+        }
+        for (Future<Boolean> waiter : waiters) assertThat(waiter.get(5, TimeUnit.SECONDS)).isFalse();
+
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(limiter.getInflight()).isEqualTo(1);
+        assertThat(limiter.getRejected()).isEqualTo(8);
+
+        // the abandoned waiters are not granted the permit once it is released
+        limiter.release(1_000, false);
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.acquire(Priority.LOW)).isTrue();
+    }
+
+    @Test
+    void releasesRacingWithQueueTimeoutsNeverLeakPermits() throws Exception {
+        // waits about as long as a permit is held, so grants and abandons keep crossing each other
+        RouteLimiter limiter = fixed(2, 16, Duration.ofNanos(50_000));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 32; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 3_000; i++) {
+                    if (limiter.acquire(Priority.NORMAL)) {
+                        LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(60_000));
+                        limiter.release(1_000, false);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(60, TimeUnit.SECONDS);
+
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void releasedPermitGoesToTheHighestPriorityThenOldestWaiter() throws Exception {
+        RouteLimiter limiter = fixed(1, 8, Duration.ofSeconds(10));
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+        Queue<String> admitted = new ConcurrentLinkedQueue<>();
+
+        List<Future<Boolean>> waiters = new ArrayList<>();
+        String[] names = {"low", "normal-1", "high", "normal-2"};
+        Priority[] priorities = {Priority.LOW, Priority.NORMAL, Priority.HIGH, Priority.NORMAL};
+        for (int i = 0; i < names.length; i++) {
+            waiters.add(acquireAsync(limiter, priorities[i], admitted, names[i]));
+            int queued = i + 1;
+            await(() -> limiter.getQueued() == queued);
+        }
+
+        limiter.release(1_000, false);
+        for (Future<Boolean> waiter : waiters) assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(admitted).containsExactly("high", "normal-1", "normal-2", "low");
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.getQueued()).isZero();
+    }
+
+    @Test
+    void fullQueueEvictsItsLowestPriorityWaiterForAHigherPriorityArrival() throws Exception {
+        RouteLimiter limiter = fixed(1, 1, Duration.ofSeconds(10));
+        assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+        Queue<String> admitted = new ConcurrentLinkedQueue<>();
+
+        Future<Boolean> low = acquireAsync(limiter, Priority.LOW, admitted, "low");
+        await(() -> limiter.getQueued() == 1);
+        long start = System.nanoTime();
+        Future<Boolean> high = acquireAsync(limiter, Priority.HIGH, admitted, "high");
+
+        // evicted right away, long before its 10 s wait is up
+        assertThat(low.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        await(() -> limiter.getQueued() == 1);
+
+        // an arrival that does not outrank the queued waiter is shed immediately
+        assertThat(limiter.acquire(Priority.HIGH)).isFalse();
+        assertThat(limiter.getRejected()).isEqualTo(2);
+
+        limiter.release(1_000, false);
+        assertThat(high.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(admitted).containsExactly("high");
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.getQueued()).isZero();
+    }
+
+    @Test
+    void evictionsRacingWithGrantsNeverLeakPermits() throws Exception {
+        RouteLimiter limiter = fixed(1, 1, Duration.ofMillis(1));
+        CountDownLatch start = new CountDownLatch(1);
+        Priority[] priorities = Priority.values();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 24; t++) {
+            Priority priority = priorities[t % priorities.length];
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    if (limiter.acquire(priority)) {
+                        Thread.onSpinWait();
+                        limiter.release(1_000, false);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) worker.get(60, TimeUnit.SECONDS);
+
+        assertThat(limiter.getInflight()).isZero();
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(limiter.acquire(Priority.LOW)).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void releaseTrainsTheAdaptiveLimit() {
+        RouteLimiter limiter = new RouteLimiter(new VegasLimit(20, 1, 200, 1000), 0, 0);
+        for (int i = 0; i < 20; i++) assertThat(limiter.acquire(Priority.NORMAL)).isTrue();
+
+        limiter.release(1_000_000, true);
+
+        assertThat(limiter.getLimit()).isLessThan(20);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.designpatterns.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VegasLimitTest {
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // Feeds count samples with the given RTT while the route uses its whole limit
+    private static void feed(VegasLimit limit, int count, long rttNanos) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(rttNanos, limit.getLimit(), false);
+        }
+    }
+
+    @Test
+    void growsWhileLatencyStaysAtTheBaseline() {
+        VegasLimit limit = new VegasLimit(20, 1, 200, 1000);
+
+        feed(limit, 1, BASELINE);
+        assertThat(limit.getLimit()).isEqualTo(28); // 20 + 6 * log10(20)
+        feed(limit, 50, BASELINE);
+
+        assertThat(limit.getLimit()).isEqualTo(200);
+        assertThat(limit.getRttNoLoadNanos()).isEqualTo(BASELINE);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesWellAboveTheBaseline() {
+        VegasLimit limit = new VegasLimit(100, 1, 200, 1000);
+        feed(limit, 1, BASELINE);
+        int grown = limit.getLimit();
+
+        feed(limit, 1, BASELINE * 10);
+        assertThat(limit.getLimit()).isEqualTo(grown - 2); // queue of ~90% of the limit: minus log10(limit)
+        feed(limit, 500, BASELINE * 10);
+
+        // settles where the estimated queue (~90% of the limit) no longer exceeds 6 * log10(limit)
+        assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void holdsWhenTheEstimatedQueueIsModerate() {
+        VegasLimit limit = new VegasLimit(100, 1, 200, 1000);
+        feed(limit, 1, BASELINE);
+        int before = limit.getLimit();
+
+        // queue = ceil(112 * (1 - 10/10.8)) = 9, between 3 * log10(112) and 6 * log10(112)
+        feed(limit, 1, BASELINE * 108 / 100);
+
+        assertThat(limit.getLimit()).isEqualTo(before);
+    }
+
+    @Test
+    void failedRequestsShrinkTheLimitRegardlessOfLatency() {
+        VegasLimit limit = new VegasLimit(20, 1, 200, 1000);
+
+        limit.onSample(BASELINE, 20, true);
+
+        assertThat(limit.getLimit()).isEqualTo(19); // 20 - log10(20), rounded
+    }
+
+    @Test
+    void ignoresSamplesWhileLessThanHalfTheLimitIsUsed() {
+        VegasLimit limit = new VegasLimit(20, 1, 200, 1000);
+
+        for (int i = 0; i < 10; i++) limit.onSample(BASELINE, 9, false);
+        for (int i = 0; i < 10; i++) limit.onSample(BASELINE * 10, 9, false);
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void staysWithinMinAndMax() {
+        VegasLimit limit = new VegasLimit(500, 5, 50, 1000);
+        assertThat(limit.getLimit()).isEqualTo(50);
+
+        for (int i = 0; i < 100; i++) limit.onSample(BASELINE, 50, true);
+
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void relearnsTheBaselineEveryProbeInterval() {
+        VegasLimit limit = new VegasLimit(20, 1, 200, 10);
+        feed(limit, 9, BASELINE);
+        assertThat(limit.getRttNoLoadNanos()).isEqualTo(BASELINE);
+
+        // the downstream got permanently slower; the 10th sample resets the baseline to it
+        feed(limit, 1, BASELINE * 5);
+        assertThat(limit.getRttNoLoadNanos()).isEqualTo(BASELINE * 5);
+        int before = limit.getLimit();
+
+        feed(limit, 1, BASELINE * 5);
+        assertThat(limit.getLimit()).isGreaterThan(before);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.designpatterns.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.designpatterns.metrics.EndpointMetrics.BUCKET_COUNT;
+import static com.example.designpatterns.metrics.EndpointMetrics.MAX_TRACKABLE_NANOS;
+import static com.example.designpatterns.metrics.EndpointMetrics.bucketIndex;
+import static com.example.designpatterns.metrics.EndpointMetrics.highestValueInBucket;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointMetricsTest {
+
+    @Test
+    void valuesBelow64GetABucketEach() {
+        for (long value = 0; value < 64; value++) {
+            assertThat(bucketIndex(value)).isEqualTo((int) value);
+            assertThat(highestValueInBucket((int) value)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void powerOfTwoBoundariesStartANewRangeOfWiderBuckets() {
+        // 64..127 is split into 32 buckets two values wide
+        assertThat(bucketIndex(64)).isEqualTo(64);
+        assertThat(bucketIndex(65)).isEqualTo(64);
+        assertThat(highestValueInBucket(64)).isEqualTo(65);
+        assertThat(bucketIndex(127)).isEqualTo(95);
+        assertThat(highestValueInBucket(95)).isEqualTo(127);
+
+        // 128..255: four values wide
+        assertThat(bucketIndex(128)).isEqualTo(96);
+        assertThat(bucketIndex(131)).isEqualTo(96);
+        assertThat(highestValueInBucket(96)).isEqualTo(131);
+        assertThat(bucketIndex(132)).isEqualTo(97);
+    }
+
+    @Test
+    void everyValueFallsInABucketWhoseUpperBoundIsWithinThreePercent() {
+        for (int magnitude = 6; magnitude < 36; magnitude++) {
+            for (long value : new long[]{(1L << magnitude) - 1, 1L << magnitude, (1L << magnitude) + 1, 3L << (magnitude - 1)}) {
+                long highest = highestValueInBucket(bucketIndex(value));
+                assertThat(highest).isGreaterThanOrEqualTo(value);
+                assertThat(highest - value).isLessThanOrEqualTo(value / 32);
+                // and the previous bucket ends below it
+                assertThat(highestValueInBucket(bucketIndex(value) - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    void theClampValueIsTheLastBucketAndLargerLatenciesAreClampedIntoIt() {
+        assertThat(bucketIndex(MAX_TRACKABLE_NANOS)).isEqualTo(BUCKET_COUNT - 1);
+        assertThat(highestValueInBucket(BUCKET_COUNT - 1)).isEqualTo(MAX_TRACKABLE_NANOS);
+
+        EndpointMetrics metrics = new EndpointMetrics("/slow");
+        metrics.record(Long.MAX_VALUE, -1, false);
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.valueAtQuantile(0.5)).isEqualTo(MAX_TRACKABLE_NANOS);
+        // the sum keeps the real value
+        assertThat(snapshot.getLatencySumNanos()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void quantilesOfAUniformDistribution() {
+        EndpointMetrics metrics = new EndpointMetrics("/uniform");
+        for (long latency = 1; latency <= 100; latency++) {
+            metrics.record(latency, -1, false);
+        }
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(100);
+        assertThat(snapshot.getLatencySumNanos()).isEqualTo(5050);
+        assertThat(snapshot.valueAtQuantile(0.5)).isEqualTo(50);
+        assertThat(snapshot.valueAtQuantile(0.63)).isEqualTo(63);
+        // above 64 the answer is the top of the two-value bucket
+        assertThat(snapshot.valueAtQuantile(0.99)).isEqualTo(99);
+        assertThat(snapshot.valueAtQuantile(1.0)).isEqualTo(101);
+    }
+
+    @Test
+    void quantilesOfABimodalDistribution() {
+        EndpointMetrics metrics = new EndpointMetrics("/bimodal");
+        for (int i = 0; i < 990; i++) metrics.record(1_000_000, -1, false);
+        for (int i = 0; i < 10; i++) metrics.record(1_000_000_000, -1, false);
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.valueAtQuantile(0.5)).isEqualTo(highestValueInBucket(bucketIndex(1_000_000)));
+        assertThat(snapshot.valueAtQuantile(0.99)).isEqualTo(highestValueInBucket(bucketIndex(1_000_000)));
+        assertThat(snapshot.valueAtQuantile(0.999)).isEqualTo(highestValueInBucket(bucketIndex(1_000_000_000)));
+    }
+
+    @Test
+    void emptySnapshotReportsZero() {
+        EndpointMetrics.Snapshot snapshot = new EndpointMetrics("/idle").snapshot();
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.valueAtQuantile(0.99)).isZero();
+    }
+
+    @Test
+    void countsErrorsAndAllocationsAndIgnoresNegativeValues() {
+        EndpointMetrics metrics = new EndpointMetrics("/mixed");
+        metrics.record(-5, -1, true);
+        metrics.record(10, 2_048, false);
+        metrics.record(10, 1_024, true);
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(3);
+        assertThat(snapshot.getLatencySumNanos()).isEqualTo(20);
+        assertThat(snapshot.getErrors()).isEqualTo(2);
+        assertThat(snapshot.getAllocatedBytes()).isEqualTo(3_072);
+        assertThat(snapshot.valueAtQuantile(0.1)).isZero();
+    }
+
+    @Test
+    void deadThreadsAreFoldedIntoTheTotalsAndTheirRecordersDropped() throws Exception {
+        EndpointMetrics metrics = new EndpointMetrics("/churn");
+        metrics.record(10, -1, false);
+
+        for (int round = 0; round < 20; round++) {
+            Thread thread = new Thread(() -> {
+                metrics.record(100, 64, true);
+                metrics.record(100, -1, false);
+            });
+            thread.start();
+            thread.join();
+        }
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(41);
+        assertThat(snapshot.getErrors()).isEqualTo(20);
+        assertThat(snapshot.getAllocatedBytes()).isEqualTo(20 * 64);
+        assertThat(snapshot.getLatencySumNanos()).isEqualTo(10 + 40 * 100);
+        // only the test thread's recorder is left
+        assertThat(metrics.recorderCount()).isEqualTo(1);
+
+        metrics.record(10, -1, false);
+        assertThat(metrics.snapshot().getCount()).isEqualTo(42);
+    }
+
+    @Test
+    void liveThreadsKeepTheirRecorders() throws Exception {
+        EndpointMetrics metrics = new EndpointMetrics("/live");
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            metrics.record(100, -1, false);
+            recorded.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            metrics.record(100, -1, false);
+        });
+        thread.start();
+        recorded.await();
+
+        assertThat(metrics.snapshot().getCount()).isEqualTo(1);
+        assertThat(metrics.recorderCount()).isEqualTo(1);
+
+        release.countDown();
+        thread.join();
+        assertThat(metrics.snapshot().getCount()).isEqualTo(2);
+        assertThat(metrics.recorderCount()).isZero();
+    }
+
+    @Test
+    void stripedRecordersCountEveryRecordingUnderContention() throws Exception {
+        EndpointMetrics metrics = new EndpointMetrics("/striped", true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) metrics.record(i, -1, i % 10 == 0);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        EndpointMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(160_000);
+        assertThat(snapshot.getErrors()).isEqualTo(16_000);
+        assertThat(snapshot.getLatencySumNanos()).isEqualTo(16L * (9_999L * 10_000 / 2));
+    }
+}
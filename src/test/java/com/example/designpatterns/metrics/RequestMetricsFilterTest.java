@@ -0,0 +1,195 @@
+package com.example.designpatterns.metrics;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestMetricsFilterTest {
+    private static final String PATTERN = "/api/gof/singleton/log/stream";
+
+    private final RequestMetrics metrics = new RequestMetrics(0);
+    private final RequestMetricsFilter filter = new RequestMetricsFilter(metrics);
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", PATTERN);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private static FilterChain handledBy(String pattern, FilterChain handler) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+            handler.doFilter(request, response);
+        };
+    }
+
+    private EndpointMetrics.Snapshot recorded(String endpoint) {
+        return metrics.forEndpoint("GET", endpoint).snapshot();
+    }
+
+    // Starts async processing the way a controller returning an SseEmitter does
+    private MockAsyncContext startAsync() throws Exception {
+        request.setAsyncSupported(true);
+        filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> req.startAsync()));
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+
+    private void asyncDispatch(FilterChain chain) throws Exception {
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(request, response, chain);
+    }
+
+    @Test
+    void recordsASuccessfulRequestAgainstItsPattern() throws Exception {
+        filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> {}));
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+    }
+
+    @Test
+    void requestsWithoutAHandlerAreGroupedAsUnmatched() throws Exception {
+        filter.doFilter(request, response, (req, res) -> {});
+
+        assertThat(recorded(RequestMetricsFilter.UNMATCHED).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void methodsOfTheSamePatternAreRecordedSeparately() throws Exception {
+        filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> {}));
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", PATTERN);
+        filter.doFilter(post, new MockHttpServletResponse(), handledBy(PATTERN, (req, res) -> {}));
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(metrics.forEndpoint("POST", PATTERN).snapshot().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nonStandardMethodsAreGroupedAsOther() throws Exception {
+        MockHttpServletRequest custom = new MockHttpServletRequest("X-PROBE-" + System.nanoTime(), "/nowhere");
+        filter.doFilter(custom, new MockHttpServletResponse(), (req, res) -> {});
+
+        assertThat(metrics.forEndpoint(RequestMetricsFilter.OTHER_METHOD, RequestMetricsFilter.UNMATCHED)
+                .snapshot().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorStatusCountsAsAnError() throws Exception {
+        filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> response.setStatus(503)));
+
+        assertThat(recorded(PATTERN).getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void clientErrorStatusDoesNotCountAsAnError() throws Exception {
+        filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> response.setStatus(404)));
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+    }
+
+    @Test
+    void exceptionIsRecordedAsAnErrorAndRethrown() {
+        assertThatThrownBy(() -> filter.doFilter(request, response, handledBy(PATTERN, (req, res) -> {
+            throw new IllegalStateException("boom");
+        }))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncRequestIsRecordedWhenTheContainerCompletesIt() throws Exception {
+        MockAsyncContext async = startAsync();
+        assertThat(recorded(PATTERN).getCount()).as("not complete yet").isZero();
+
+        Thread.sleep(20);
+        async.complete();
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+        assertThat(recorded(PATTERN).getLatencySumNanos()).isGreaterThanOrEqualTo(20_000_000L);
+    }
+
+    @Test
+    void asyncRequestIsRecordedWhenItsLastDispatchReturns() throws Exception {
+        MockAsyncContext async = startAsync();
+
+        asyncDispatch((req, res) -> request.setAsyncStarted(false));
+        async.complete();
+
+        assertThat(recorded(PATTERN).getCount()).as("recorded once").isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+    }
+
+    @Test
+    void asyncRequestThatErrorsIsRecordedAsAnError() throws Exception {
+        MockAsyncContext async = startAsync();
+
+        for (var listener : async.getListeners()) {
+            listener.onError(new AsyncEvent(async, request, response, new IllegalStateException("handler failed")));
+        }
+        async.complete();
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncRequestEndedByAClientDisconnectIsNotAnError() throws Exception {
+        MockAsyncContext async = startAsync();
+
+        for (var listener : async.getListeners()) {
+            listener.onError(new AsyncEvent(async, request, response, new IOException("Broken pipe")));
+        }
+        async.complete();
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+    }
+
+    @Test
+    void asyncRequestWhoseClientDisconnectedIsRecordedEvenWithoutOnComplete() throws Exception {
+        startAsync();
+
+        // e.g. a broken pipe surfacing from the async dispatch; the container may never call onComplete
+        assertThatThrownBy(() -> asyncDispatch((req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/error");
+            throw new IOException("Broken pipe");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(recorded(PATTERN).getCount()).as("recorded under the original pattern").isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isZero();
+        assertThat(metrics.scrape()).doesNotContain("endpoint=\"/error\"");
+    }
+
+    @Test
+    void asyncDispatchThatFailsIsRecordedAsAnError() throws Exception {
+        MockAsyncContext async = startAsync();
+
+        assertThatThrownBy(() -> asyncDispatch((req, res) -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        async.complete();
+
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+        assertThat(recorded(PATTERN).getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncDispatchThatStartsAnotherRoundDoesNotRecordYet() throws Exception {
+        MockAsyncContext async = startAsync();
+
+        asyncDispatch((req, res) -> {});
+        assertThat(recorded(PATTERN).getCount()).isZero();
+
+        async.complete();
+        assertThat(recorded(PATTERN).getCount()).isEqualTo(1);
+    }
+}
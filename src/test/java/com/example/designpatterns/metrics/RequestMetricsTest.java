@@ -0,0 +1,82 @@
+package com.example.designpatterns.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsTest {
+
+    private static List<String> samples(String scrape) {
+        return scrape.lines().filter(line -> !line.startsWith("#")).toList();
+    }
+
+    @Test
+    void scrapeRendersASummaryPerEndpoint() {
+        RequestMetrics metrics = new RequestMetrics(0);
+        metrics.record("POST", "/api/gof/strategy/pay", 1_000_000_000L, -1, false);
+        metrics.record("POST", "/api/gof/strategy/pay", 500_000_000L, -1, true);
+
+        String scrape = metrics.scrape();
+
+        assertThat(scrape).contains("# TYPE gof_request_latency_seconds summary\n");
+        assertThat(samples(scrape)).contains(
+                "gof_request_latency_seconds_sum{method=\"POST\",endpoint=\"/api/gof/strategy/pay\"} 1.5",
+                "gof_request_latency_seconds_count{method=\"POST\",endpoint=\"/api/gof/strategy/pay\"} 2",
+                "gof_requests_total{method=\"POST\",endpoint=\"/api/gof/strategy/pay\"} 2",
+                "gof_request_errors_total{method=\"POST\",endpoint=\"/api/gof/strategy/pay\"} 1",
+                "gof_request_allocated_bytes_total{method=\"POST\",endpoint=\"/api/gof/strategy/pay\"} 0");
+        assertThat(samples(scrape)).filteredOn(line -> line.startsWith("gof_request_latency_seconds{"))
+                .extracting(line -> line.substring(line.indexOf(",quantile=")))
+                .hasSize(3)
+                .allMatch(line -> line.matches(",quantile=\"0\\.\\d+\"} [0-9.E]+"));
+    }
+
+    @Test
+    void methodsOfTheSamePatternAreSeparateSeries() {
+        RequestMetrics metrics = new RequestMetrics(0);
+        metrics.record("GET", "/api/gof/singleton/log", 1_000, -1, false);
+        metrics.record("POST", "/api/gof/singleton/log", 1_000, -1, true);
+        metrics.record("POST", "/api/gof/singleton/log", 1_000, -1, false);
+
+        assertThat(samples(metrics.scrape())).contains(
+                "gof_requests_total{method=\"GET\",endpoint=\"/api/gof/singleton/log\"} 1",
+                "gof_requests_total{method=\"POST\",endpoint=\"/api/gof/singleton/log\"} 2",
+                "gof_request_errors_total{method=\"GET\",endpoint=\"/api/gof/singleton/log\"} 0",
+                "gof_request_errors_total{method=\"POST\",endpoint=\"/api/gof/singleton/log\"} 1");
+    }
+
+    @Test
+    void scrapeIsStableAcrossRepeatedCalls() {
+        RequestMetrics metrics = new RequestMetrics(0);
+        metrics.record("POST", "/a", 1_000, -1, false);
+
+        assertThat(metrics.scrape()).isEqualTo(metrics.scrape());
+    }
+
+    @Test
+    void labelValuesAreEscaped() {
+        RequestMetrics metrics = new RequestMetrics(0);
+        metrics.record("POST", "/odd\\path/\"quoted\"\nnext", 1_000, -1, false);
+
+        assertThat(samples(metrics.scrape()))
+                .contains("gof_requests_total{method=\"POST\",endpoint=\"/odd\\\\path/\\\"quoted\\\"\\nnext\"} 1")
+                .noneMatch(line -> line.equals("next\"} 1"));
+    }
+
+    @Test
+    void allocationEstimatesScaleBySampleRate() {
+        RequestMetrics metrics = new RequestMetrics(64);
+
+        assertThat(metrics.estimateAllocatedBytes(100)).isEqualTo(6_400);
+    }
+
+    @Test
+    void disabledAllocationTrackingNeverSamples() {
+        RequestMetrics metrics = new RequestMetrics(0);
+
+        assertThat(metrics.sampleAllocations()).isFalse();
+        assertThat(metrics.currentThreadAllocatedBytes()).isEqualTo(-1);
+    }
+}